@@ -0,0 +1,93 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 骨密度 AOS 100 の測定結果の逐次解析
+ *
+ * 応答は CR LF 区切りの行で、次の順に届く。
+ * <pre>
+ *   0     STX + 受付番号
+ *   1～14 (読み飛ばし)
+ *   15    骨密度
+ *   17    同年比較
+ *   19    最大骨塩量   (16・18 は読み飛ばし)
+ *   20    ETX
+ * </pre>
+ * ETX の行を受信した時点、または受付番号・STX・ETX が一致しない時点で確定する。
+ */
+final class Aos100nwParser extends LineParser {
+
+    private static final String TAG = "Aos100nwParser";
+
+    private static final int NUMBER_LINE = 0;
+    private static final int FIRST_VALUE_LINE = 15;
+    private static final int ETX_LINE = 20;
+
+    private final String expectedNumber;
+    private final String[] values = new String[4];
+    private boolean rejected;
+
+    /**
+     * @param expectedNumber 送信した健診者番号(受付番号と比較する)
+     */
+    Aos100nwParser(String expectedNumber) {
+        this.expectedNumber = expectedNumber;
+    }
+
+    /**
+     * 受付番号・STX・ETX が一致せず受付不可となったか
+     */
+    boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * 測定値
+     *
+     * @param index 1: 骨密度 2: 同年比較 3: 最大骨塩量
+     */
+    String value(int index) {
+        return values[index];
+    }
+
+    @Override
+    protected boolean line(int index, byte[] line, int length) {
+        if (DeviceLog.DEBUG) {
+            DeviceLog.d(TAG, "line[" + index + "] = ", SjisCodec.decode(line, 0, length));
+        }
+
+        if (index == NUMBER_LINE) {
+            // 先頭の文字が STX (ﾃｷｽﾄ開始) でない、または受付番号違い
+            return length == 0 || line[0] != FrameDetector.STX || !isExpectedNumber(line, length) ? reject() : false;
+        }
+        if (index >= FIRST_VALUE_LINE && index < ETX_LINE && (index - FIRST_VALUE_LINE) % 2 == 0) {
+            // 骨密度・同年比較・最大骨塩量(それぞれの間の1行は読み飛ばし)
+            values[(index - FIRST_VALUE_LINE) / 2 + 1] = SjisCodec.decode(line, 0, length);
+            return false;
+        }
+        if (index == ETX_LINE) {
+            return length == 0 || line[0] != FrameDetector.ETX ? reject() : true;
+        }
+        return false;
+    }
+
+    /**
+     * STX の後の数字のみを取り出した値(VB の Val 変換)が健診者番号と一致するか
+     */
+    private boolean isExpectedNumber(byte[] line, int length) {
+        StringBuilder digits = new StringBuilder(length);
+        for (int i = 1; i < length; i++) {
+            if (line[i] >= '0' && line[i] <= '9') {
+                digits.append((char) line[i]);
+            }
+        }
+        if (DeviceLog.DEBUG) {
+            DeviceLog.d(TAG, "受付番号 = " + digits + " 健診者番号 = ", expectedNumber);
+        }
+        return digits.toString().equals(expectedNumber);
+    }
+
+    private boolean reject() {
+        rejected = true;
+        return true;
+    }
+}
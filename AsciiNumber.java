@@ -0,0 +1,353 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 受信バッファ上のASCII数値の解析
+ *
+ * bytesToString() で文字列に変換せずに byte[] から直接 int/double を取得する。
+ * 前後の空白・NUL は String.trim() と同様に無視する。
+ * 引数に既定値を取る parseInt()/parseDouble() は解析できない場合に既定値を返し、例外を発生させない。
+ * 空欄・空白埋めの項目が多いため、解析失敗のたびに例外を生成しないようにしている。
+ */
+final class AsciiNumber {
+
+    // 2^53(double で誤差なく表せる整数の上限)
+    private static final long EXACT_MANTISSA_LIMIT = 1L << 53;
+
+    // 誤差なく表せる10のべき乗(10^22 まで)
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+            1e21, 1e22
+    };
+
+    // intValue() の解析失敗(int の範囲外の値)
+    private static final long INVALID_INT = Long.MIN_VALUE;
+
+    // int の絶対値の上限(Integer.MIN_VALUE の絶対値)
+    private static final long INT_MAGNITUDE_LIMIT = 1L << 31;
+
+    private AsciiNumber() {
+    }
+
+    /**
+     * Integer.parseInt(bytesToString(data, offset, length).trim()) に相当
+     *
+     * @throws NumberFormatException 整数でない場合
+     */
+    static int parseInt(byte[] data, int offset, int length) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        long value = intValue(data, start, end);
+        if (value == INVALID_INT) {
+            throw start >= end ? new NumberFormatException("empty") : invalid(data, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * 整数を解析する(整数でない場合も例外を発生させない)
+     *
+     * @param defaultValue 整数でない場合の戻り値
+     */
+    static int parseInt(byte[] data, int offset, int length, int defaultValue) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        long value = intValue(data, start, end);
+        return value == INVALID_INT ? defaultValue : (int) value;
+    }
+
+    /**
+     * Integer.parseInt(value.trim()) に相当(整数でない場合も例外を発生させない)
+     *
+     * @param value        文字列(null は整数でないものとする)
+     * @param defaultValue 整数でない場合の戻り値
+     */
+    static int parseInt(CharSequence value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        int start = trimStart(value, 0, value.length());
+        int end = trimEnd(value, start, value.length());
+        long result = intValue(value, start, end);
+        return result == INVALID_INT ? defaultValue : (int) result;
+    }
+
+    /**
+     * Double.parseDouble(bytesToString(data, offset, length)) に相当
+     *
+     * @throws NumberFormatException 数値でない場合
+     */
+    static double parseDouble(byte[] data, int offset, int length) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        if (start >= end) {
+            throw new NumberFormatException("empty");
+        }
+        double value = doubleValue(data, start, end);
+        if (Double.isNaN(value)) {
+            // "NaN" の表記は従来どおり NaN、それ以外は従来と同じ例外
+            return Double.parseDouble(new String(data, start, end - start, StandardCharsets.US_ASCII));
+        }
+        return value;
+    }
+
+    /**
+     * 数値を解析する(数値でない場合も例外を発生させない)
+     *
+     * @param defaultValue 数値でない場合の戻り値
+     */
+    static double parseDouble(byte[] data, int offset, int length, double defaultValue) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        double value = start < end ? doubleValue(data, start, end) : Double.NaN;
+        return Double.isNaN(value) ? defaultValue : value;
+    }
+
+    /**
+     * Double.parseDouble(value.trim()) に相当(数値でない場合も例外を発生させない)
+     *
+     * @param value        文字列(null は数値でないものとする)
+     * @param defaultValue 数値でない場合の戻り値
+     */
+    static double parseDouble(CharSequence value, double defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        int start = trimStart(value, 0, value.length());
+        int end = trimEnd(value, start, value.length());
+        double result = start < end ? doubleValue(value, start, end) : Double.NaN;
+        return Double.isNaN(result) ? defaultValue : result;
+    }
+
+    /**
+     * 数値(符号・小数点を含む)かどうか
+     */
+    static boolean isNumeric(byte[] data, int offset, int length) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        int i = start;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            i++;
+        }
+        boolean dot = false;
+        int digits = 0;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    /**
+     * 前後の空白を除いた文字列(数値項目の格納用)
+     */
+    static String trimmedText(byte[] data, int offset, int length) {
+        int start = trimStart(data, offset, offset + length);
+        int end = trimEnd(data, start, offset + length);
+        return new String(data, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static int trimStart(byte[] data, int start, int end) {
+        while (start < end && (data[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(byte[] data, int start, int end) {
+        while (end > start && (data[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int trimStart(CharSequence value, int start, int end) {
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(CharSequence value, int start, int end) {
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 前後の空白を除いた範囲の整数(整数でない場合は INVALID_INT)
+     */
+    private static long intValue(byte[] data, int start, int end) {
+        if (start >= end) {
+            return INVALID_INT;
+        }
+        boolean negative = data[start] == '-';
+        int i = data[start] == '-' || data[start] == '+' ? start + 1 : start;
+        if (i == end) {
+            return INVALID_INT;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_INT;
+            }
+            result = result * 10 + digit;
+            if (result > INT_MAGNITUDE_LIMIT) {
+                return INVALID_INT;
+            }
+        }
+        return toInt(negative ? -result : result);
+    }
+
+    private static long intValue(CharSequence value, int start, int end) {
+        if (start >= end) {
+            return INVALID_INT;
+        }
+        char sign = value.charAt(start);
+        int i = sign == '-' || sign == '+' ? start + 1 : start;
+        if (i == end) {
+            return INVALID_INT;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // 全角数字など(Integer.parseInt は受け付ける)
+                return slowParseInt(value.subSequence(start, end).toString());
+            }
+            int digit = c - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_INT;
+            }
+            result = result * 10 + digit;
+            if (result > INT_MAGNITUDE_LIMIT) {
+                return INVALID_INT;
+            }
+        }
+        return toInt(sign == '-' ? -result : result);
+    }
+
+    private static long toInt(long value) {
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_INT : value;
+    }
+
+    /**
+     * 前後の空白を除いた範囲の数値(数値でない場合は NaN)
+     */
+    private static double doubleValue(byte[] data, int start, int end) {
+        boolean negative = false;
+        int i = start;
+        if (data[i] == '-' || data[i] == '+') {
+            negative = data[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = -1;     // 小数点以下の桁数(小数点なしは -1)
+        int digits = 0;
+        for (; i < end; i++) {
+            int b = data[i] & 0xff;
+            if (b >= '0' && b <= '9') {
+                if (mantissa >= EXACT_MANTISSA_LIMIT / 10 || scale >= POW10.length - 1) {
+                    // 桁数・小数点以下の桁数が多い
+                    return slowParseDouble(new String(data, start, end - start, StandardCharsets.US_ASCII));
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (isLetter(b)) {
+                // 指数表記など
+                return slowParseDouble(new String(data, start, end - start, StandardCharsets.US_ASCII));
+            } else {
+                return Double.NaN;
+            }
+        }
+        return toDouble(negative, mantissa, scale, digits);
+    }
+
+    private static double doubleValue(CharSequence value, int start, int end) {
+        boolean negative = false;
+        int i = start;
+        if (value.charAt(i) == '-' || value.charAt(i) == '+') {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int scale = -1;     // 小数点以下の桁数(小数点なしは -1)
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= EXACT_MANTISSA_LIMIT / 10 || scale >= POW10.length - 1) {
+                    // 桁数・小数点以下の桁数が多い
+                    return slowParseDouble(value.subSequence(start, end).toString());
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else if (isLetter(c)) {
+                // 指数表記など
+                return slowParseDouble(value.subSequence(start, end).toString());
+            } else {
+                return Double.NaN;
+            }
+        }
+        return toDouble(negative, mantissa, scale, digits);
+    }
+
+    private static double toDouble(boolean negative, long mantissa, int scale, int digits) {
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        // 仮数・10のべき乗とも誤差がないため、1回の除算で正しく丸められる
+        double value = scale > 0 ? mantissa / POW10[scale] : (double) mantissa;
+        return negative ? -value : value;
+    }
+
+    private static boolean isLetter(int c) {
+        c |= 0x20;
+        return c >= 'a' && c <= 'z';
+    }
+
+    /**
+     * 高速に解析できない表記(指数表記・桁数が多いなど)の解析<br>
+     * 例外はここでのみ発生し、数値でない場合は NaN を返す
+     */
+    private static double slowParseDouble(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static long slowParseInt(String text) {
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            return INVALID_INT;
+        }
+    }
+
+    private static NumberFormatException invalid(byte[] data, int start, int end) {
+        return new NumberFormatException("For input string: \""
+                + new String(data, start, end - start, StandardCharsets.US_ASCII) + "\"");
+    }
+}
@@ -0,0 +1,140 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * AsciiNumber が従来の Integer.parseInt() / Double.parseDouble()(文字列化・trim() 後)と同じ結果になること
+ */
+public class AsciiNumberTest {
+
+    private static final String[] INPUTS = {
+            // 空欄・空白埋め
+            "", " ", "   ", "\0\0\0", " \t ",
+            // 符号
+            "0", "12", " 170 ", "+5", "-5", "-0", "+", "-", "--1", "+-1", "1-",
+            // 小数
+            "170.5", " 065.50 ", ".5", "5.", "-.5", "+0.25", ".", "1.2.3", "1,5",
+            // int の範囲外・桁数の多い値
+            "2147483647", "2147483648", "-2147483648", "-2147483649", "99999999999999999999",
+            "9007199254740993", "0.1234567890123456789012345", "123456789012345678.5",
+            // 指数表記など
+            "1e3", "1E-2", "-2.5e+1", "1e", "e5", "NaN", "Infinity", "-Infinity", "1d", "0x10",
+            // 数字以外
+            "abc", "12a", "1 2",
+    };
+
+    @Test
+    public void parseIntMatchesIntegerParseInt() {
+        for (String input : INPUTS) {
+            byte[] data = bytes(input);
+            Integer expected = oldParseInt(input);
+            try {
+                int actual = AsciiNumber.parseInt(data, 0, data.length);
+                assertEquals("[" + input + "]", expected, Integer.valueOf(actual));
+            } catch (NumberFormatException e) {
+                assertEquals("[" + input + "] " + e.getMessage(), expected, null);
+            }
+            assertEquals("[" + input + "]", expected != null ? expected : -1,
+                    AsciiNumber.parseInt(data, 0, data.length, -1));
+            assertEquals("[" + input + "]", expected != null ? expected : -1,
+                    AsciiNumber.parseInt(input, -1));
+        }
+    }
+
+    @Test
+    public void parseDoubleMatchesDoubleParseDouble() {
+        for (String input : INPUTS) {
+            byte[] data = bytes(input);
+            Double expected = oldParseDouble(input);
+            try {
+                double actual = AsciiNumber.parseDouble(data, 0, data.length);
+                assertEquals("[" + input + "]", expected, Double.valueOf(actual));
+            } catch (NumberFormatException e) {
+                assertEquals("[" + input + "] " + e.getMessage(), expected, null);
+            }
+            if (expected == null || !expected.isNaN()) {
+                // "NaN" は既定値と区別できないため除く
+                double defaultValue = -1.5;
+                double value = expected != null ? expected : defaultValue;
+                assertEquals("[" + input + "]", value, AsciiNumber.parseDouble(data, 0, data.length, defaultValue), 0);
+                assertEquals("[" + input + "]", value, AsciiNumber.parseDouble(input, defaultValue), 0);
+            }
+        }
+    }
+
+    @Test
+    public void parsesFieldInsideRecord() {
+        byte[] record = bytes("ABC 170.5  65.0 XYZ");
+        assertEquals(170.5, AsciiNumber.parseDouble(record, 3, 6), 0);
+        assertEquals(65.0, AsciiNumber.parseDouble(record, 9, 6), 0);
+        assertEquals(170, AsciiNumber.parseInt(record, 3, 4));
+        assertEquals("170.5", AsciiNumber.trimmedText(record, 3, 6));
+    }
+
+    @Test
+    public void isNumericAcceptsSignAndSingleDot() {
+        assertTrue(AsciiNumber.isNumeric(bytes(" 65.5 "), 0, 6));
+        assertTrue(AsciiNumber.isNumeric(bytes("-.5"), 0, 3));
+        assertTrue(AsciiNumber.isNumeric(bytes("5."), 0, 2));
+        assertFalse(AsciiNumber.isNumeric(bytes("   "), 0, 3));
+        assertFalse(AsciiNumber.isNumeric(bytes("."), 0, 1));
+        assertFalse(AsciiNumber.isNumeric(bytes("1.2.3"), 0, 5));
+        assertFalse(AsciiNumber.isNumeric(bytes("1e3"), 0, 3));
+    }
+
+    @Test
+    public void stringOverloadsMatchOldParsersOnFullWidthDigits() {
+        // Integer.parseInt は全角数字を受け付け、Double.parseDouble は受け付けない
+        String[] inputs = {"\uff11\uff12", " \uff13 ", "-\uff14", "\uff11.\uff15", "\u3000"};
+        for (String input : inputs) {
+            Integer expectedInt = oldParseInt(input);
+            assertEquals("[" + input + "]", expectedInt != null ? expectedInt : -1, AsciiNumber.parseInt(input, -1));
+            Double expectedDouble = oldParseDouble(input.trim());
+            assertEquals("[" + input + "]", expectedDouble != null ? expectedDouble : -1.5,
+                    AsciiNumber.parseDouble(input, -1.5), 0);
+        }
+    }
+
+    @Test
+    public void nullIsDefaultValue() {
+        assertEquals(7, AsciiNumber.parseInt(null, 7));
+        assertEquals(7.5, AsciiNumber.parseDouble(null, 7.5), 0);
+    }
+
+    @Test
+    public void emptyFieldThrows() {
+        try {
+            AsciiNumber.parseDouble(bytes("    "), 0, 4);
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) {
+            // 従来どおり
+        }
+    }
+
+    private static Integer oldParseInt(String input) {
+        try {
+            return Integer.parseInt(input.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double oldParseDouble(String input) {
+        try {
+            return Double.parseDouble(input);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,134 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * タニタ体組成計(DC-430 / DC-217 / DC-320 / DC-250)の「項目名,値,項目名,値,…」形式の測定結果
+ *
+ * parse() で受信バッファを1回走査し、既知の項目名の次の値の位置と数値を記録する。
+ * 項目名の検索・値の切り出しごとに文字列を生成せず、値を返すときのみ文字列を生成する。
+ * 値の位置は受信バッファを参照するため、次の受信の前に値を取り出すこと。
+ */
+final class BodyCompositionRecord {
+
+    // 項目
+    static final int BODY_TYPE = 0;    // Bt 体型
+    static final int HEIGHT = 1;       // Hm 身長
+    static final int TARE = 2;         // Pt 着衣量(風袋量)
+    static final int WEIGHT = 3;       // Wk 体重
+    static final int FAT = 4;          // FW 体脂肪率
+
+    private static final String[] TAGS = {"Bt", "Hm", "Pt", "Wk", "FW"};
+
+    private final int[] starts = new int[TAGS.length];
+    private final int[] lengths = new int[TAGS.length];
+    private final double[] values = new double[TAGS.length];
+    private int present;
+    private byte[] data;
+
+    /**
+     * 測定結果を解析する(受信済みの全体を対象とし、CR・LF も区切りとする)<br>
+     * 改行をまたぐレコードも従来の indexOf() と同じく項目を取得できるよう、
+     * 連続する改行・行頭の改行は区切り1つとして扱う。
+     * 同じ項目が複数ある場合は最初の値とする
+     *
+     * @param data   受信バッファ
+     * @param length 受信済みサイズ
+     * @return true: 既知の項目が1つ以上ある
+     */
+    boolean parse(byte[] data, int length) {
+        this.data = data;
+        present = 0;
+        int tag = -1;       // 直前の項目名(値待ち)
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            byte b = i < length ? data[i] : (byte) ',';
+            boolean lineBreak = b == '\r' || b == '\n';
+            if (b != ',' && !lineBreak) {
+                continue;
+            }
+            if (lineBreak && start == i) {
+                // 改行の直後の改行・区切り文字の直後の改行
+                start = i + 1;
+                continue;
+            }
+            if (tag >= 0) {
+                setValue(tag, start, i);
+                tag = -1;
+            } else {
+                tag = tagOf(start, i);
+            }
+            start = i + 1;
+        }
+        return present != 0;
+    }
+
+    /**
+     * 項目があるか
+     *
+     * @param tag BODY_TYPE など
+     */
+    boolean has(int tag) {
+        return (present & (1 << tag)) != 0;
+    }
+
+    /**
+     * 項目の数値
+     *
+     * @param tag BODY_TYPE など
+     * @return 数値(項目がない・数値でない場合は NaN)
+     */
+    double get(int tag) {
+        return has(tag) ? values[tag] : Double.NaN;
+    }
+
+    /**
+     * 受信したままの値(前後の空白を除く)
+     *
+     * @param tag     BODY_TYPE など
+     * @param missing 項目がない場合の戻り値
+     */
+    String text(int tag, String missing) {
+        return has(tag) ? SjisCodec.decode(data, starts[tag], lengths[tag]) : missing;
+    }
+
+    /**
+     * String.valueOf(Double.parseDouble(値)) に相当する値<br>
+     * 数値でない場合は受信したままの値を返す(呼び出し側の数値チェックで判定する)
+     *
+     * @param tag     BODY_TYPE など
+     * @param missing 項目がない場合の戻り値
+     */
+    String decimalText(int tag, String missing) {
+        if (!has(tag)) {
+            return missing;
+        }
+        return Double.isNaN(values[tag]) ? text(tag, missing) : String.valueOf(values[tag]);
+    }
+
+    private void setValue(int tag, int start, int end) {
+        if (has(tag)) {
+            return;
+        }
+        while (start < end && data[start] == ' ') {
+            start++;
+        }
+        while (end > start && data[end - 1] == ' ') {
+            end--;
+        }
+        starts[tag] = start;
+        lengths[tag] = end - start;
+        values[tag] = AsciiNumber.parseDouble(data, start, end - start, Double.NaN);
+        present |= 1 << tag;
+    }
+
+    private int tagOf(int start, int end) {
+        if (end - start != 2) {
+            return -1;
+        }
+        for (int tag = 0; tag < TAGS.length; tag++) {
+            if (data[start] == TAGS[tag].charAt(0) && data[start + 1] == TAGS[tag].charAt(1)) {
+                return tag;
+            }
+        }
+        return -1;
+    }
+}
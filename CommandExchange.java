@@ -0,0 +1,137 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import jp.co.jimnet.kenshin.io.ReadResultSize;
+
+/**
+ * CRLF 終端のコマンド・応答による計測器との通信手順(タニタ PC モードなど)
+ *
+ * 「コマンド送信 → 応答の先頭を確認」「応答待ち」を1ステップとし、
+ * 計測器ごとの手順はステップを順に呼び出して組み立てる。
+ * 未受信・受付不可のステップで receiveRet にキャンセルを設定し false を返す。
+ */
+final class CommandExchange {
+
+    private static final String TAG = "CommandExchange";
+
+    private static final String CRLF = "\r\n";
+
+    private final DeviceSession session;
+    private final byte[] buffer;
+    private final ReadResultSize resultSize = new ReadResultSize();
+    private final String deviceName;
+
+    private int btRet;
+    private String response = "";
+
+    /**
+     * @param session    通信中のセッション(接続済み)
+     * @param buffer     受信バッファ
+     * @param deviceName ログ出力用の計測器名
+     */
+    CommandExchange(DeviceSession session, byte[] buffer, String deviceName) {
+        this.session = session;
+        this.buffer = buffer;
+        this.deviceName = deviceName;
+    }
+
+    /**
+     * コマンドを送信し、応答の先頭が expected であることを確認する
+     *
+     * @param step     ログ出力用のステップ名
+     * @param command  コマンド(CRLF は付加する)
+     * @param expected 受付時の応答の先頭
+     * @return true: 受付 false: 未受信・受付不可(キャンセル)
+     */
+    boolean command(String step, String command, String expected) {
+        return command(step, SjisCodec.encode(command + CRLF), expected);
+    }
+
+    /**
+     * エンコード済みのコマンドを送信し、応答の先頭が expected であることを確認する
+     *
+     * @param step     ログ出力用のステップ名
+     * @param command  CRLF を含むコマンド(DeviceCommands の固定コマンドなど)
+     * @param expected 受付時の応答の先頭
+     * @return true: 受付 false: 未受信・受付不可(キャンセル)
+     */
+    boolean command(String step, byte[] command, String expected) {
+        DeviceCommands.send(session.connection, command);
+
+        if (!receive(step)) {
+            return false;
+        }
+        if (!startsWith(expected)) {
+            // 受付不可
+            return cancel(step + " 受付不可");
+        }
+        return true;
+    }
+
+    /**
+     * 応答の先頭が expected になるまで受信を繰り返す(コマンドは送信しない)
+     *
+     * @param step     ログ出力用のステップ名
+     * @param expected 待ち受ける応答の先頭
+     * @return true: 受信 false: 未受信(キャンセル)
+     */
+    boolean await(String step, String expected) {
+        while (receive(step)) {
+            if (startsWith(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 最後に受信した応答
+     */
+    String response() {
+        return response;
+    }
+
+    /**
+     * 最後に受信した応答のバイト数(受信バッファの先頭からの長さ)
+     */
+    int responseLength() {
+        return resultSize.get();
+    }
+
+    /**
+     * 最後の受信の戻り値(StatusConstants.BT_XXX)
+     */
+    int btRet() {
+        return btRet;
+    }
+
+    /**
+     * CRLF までの1行を受信する
+     *
+     * @param step ログ出力用のステップ名
+     * @return true: 受信 false: 未受信(キャンセル)
+     */
+    boolean receive(String step) {
+        btRet = session.connection.receiveDeviceValue(buffer, resultSize, CRLF);
+        if (resultSize.get() <= 0) {
+            return cancel(step + " 未受信");
+        }
+        response = SjisCodec.decode(buffer, 0, resultSize.get());
+        if (DeviceLog.DEBUG) {
+            DeviceLog.d(TAG, deviceName + "】" + step + " 取得データ = ", response);
+        }
+        return true;
+    }
+
+    private boolean startsWith(String expected) {
+        // 応答が expected より短い場合は従来どおり例外(測定エラー)とする
+        return response.substring(0, expected.length()).equals(expected);
+    }
+
+    private boolean cancel(String reason) {
+        session.receiveRet = StatusConstants.RET_ERR_CANCEL;
+        if (DeviceLog.DEBUG) {
+            DeviceLog.d(TAG, deviceName + "】［Recv］キャンセル ", reason);
+        }
+        return false;
+    }
+}
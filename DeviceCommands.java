@@ -0,0 +1,77 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 計測器へ送信する固定コマンド
+ *
+ * 呼び出しごとに文字列の連結・エンコードを行わないよう、クラス初期化時に
+ * エンコード・BCC・パリティ付加済みのバイト列を作成する。
+ * 配列は共有のため、send() で送信するのみとし内容を変更しないこと。
+ */
+final class DeviceCommands {
+
+    private static final byte SYN = 0x16;
+    private static final byte CR = 0x0d;
+
+    // ===== 伝送制御
+    static final byte[] ACK = {FrameDetector.ACK};
+    static final byte[] CAN = {FrameDetector.CAN};
+
+    // ===== 体重計 (WB-110)
+    // 計量値要求 (偶数パリティ付き)
+    static final byte[] WB110_READ = withParity(line("DR"), 0);
+
+    // ===== 体組成計 PC モード (DC-320 / DC-250)
+    static final byte[] TANITA_PC_MODE = line("M1");
+    static final byte[] TANITA_TARE_1KG = line("D001.0");
+    static final byte[] TANITA_BODY_TYPE_STANDARD = line("D20");
+    static final byte[] DC320_MEASURE_ALL = line("G0");
+    static final byte[] DC320_MEASURE_WEIGHT = line("F0");
+    static final byte[] DC250_MEASURE_ALL = line("G");
+    static final byte[] DC250_MEASURE_WEIGHT = line("E");
+
+    // ===== 血圧計 (TM-2655)  SYN SYN SOH 00 STX ST/SP ETX BCC(XOR)
+    static final byte[] TM2655_START = tm2655("ST");
+    static final byte[] TM2655_STOP = tm2655("SP");
+
+    // ===== 血圧計 (TM-2580)  ENQ S ETX
+    static final byte[] TM2580_START = {FrameDetector.ENQ, 'S', FrameDetector.ETX};
+
+    // ===== 眼圧計 (TX-20P)  ACK CR
+    static final byte[] TX20P_ACK = {FrameDetector.ACK, CR};
+
+    private DeviceCommands() {
+    }
+
+    /**
+     * 固定コマンドを送信する
+     *
+     * @return BluetoothSppConnection.send() の戻り値
+     */
+    static int send(BluetoothSppConnection connection, byte[] command) {
+        return connection.send(command, command.length);
+    }
+
+    private static byte[] line(String command) {
+        return SjisCodec.encode(command + "\r\n");
+    }
+
+    private static byte[] withParity(byte[] command, int type) {
+        ParityCodec.set(command, command.length, type);
+        return command;
+    }
+
+    private static byte[] tm2655(String command) {
+        byte[] body = SjisCodec.encode(String.valueOf((char) FrameDetector.SOH) + "00" + (char) FrameDetector.STX
+                + command + (char) FrameDetector.ETX);
+        byte[] frame = new byte[body.length + 3];
+        frame[0] = SYN;
+        frame[1] = SYN;
+        byte bcc = 0;
+        for (int i = 0; i < body.length; i++) {
+            frame[i + 2] = body[i];
+            bcc ^= body[i];
+        }
+        frame[frame.length - 1] = bcc;
+        return frame;
+    }
+}
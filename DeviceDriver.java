@@ -0,0 +1,112 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * 計測器ごとの通信処理
+ *
+ * DeviceDriverRegistry に計測器IDごとに登録し、MeasureDeviceConnector から呼び出す。
+ */
+public interface DeviceDriver {
+
+    /**
+     * 計測値の受信処理を持つか
+     */
+    boolean canReceive();
+
+    /**
+     * 計測値を受信し、session.receiveData / session.receiveRet に格納する
+     */
+    void receive(DeviceSession session);
+
+    /**
+     * 送信処理を持つか
+     */
+    boolean canSend();
+
+    /**
+     * 計測器へ送信する
+     *
+     * @return StatusConstants.RET_XXX
+     */
+    int send(DeviceSession session);
+
+    /**
+     * 送信後、切断までに送信データが送り出されるのを待つ時間(ミリ秒)<br>
+     * 送信処理で DeviceSession.markSent() を呼び出した場合に、切断前にこの時間が経過するまで待つ(接続を保持する場合は待たない)
+     *
+     * @return 待ち時間(既定は 0: 待たない)
+     */
+    default long sendDrainMillis() {
+        return 0L;
+    }
+
+    /**
+     * 受信専用のドライバを生成する
+     */
+    static DeviceDriver ofReceive(final Consumer<DeviceSession> action) {
+        return new DeviceDriver() {
+            @Override
+            public boolean canReceive() {
+                return true;
+            }
+
+            @Override
+            public void receive(DeviceSession session) {
+                action.accept(session);
+            }
+
+            @Override
+            public boolean canSend() {
+                return false;
+            }
+
+            @Override
+            public int send(DeviceSession session) {
+                return MeasureDeviceConnector.STATUS_DEVICE_UNSPECIFIED;
+            }
+        };
+    }
+
+    /**
+     * 送信専用のドライバを生成する(切断前に待たない)
+     */
+    static DeviceDriver ofSend(final ToIntFunction<DeviceSession> action) {
+        return ofSend(action, 0L);
+    }
+
+    /**
+     * 送信専用のドライバを生成する
+     *
+     * @param drainMillis 送信後、切断までに待つ時間(ミリ秒。sendDrainMillis())
+     */
+    static DeviceDriver ofSend(final ToIntFunction<DeviceSession> action, final long drainMillis) {
+        return new DeviceDriver() {
+            @Override
+            public boolean canReceive() {
+                return false;
+            }
+
+            @Override
+            public void receive(DeviceSession session) {
+                session.receiveRet = MeasureDeviceConnector.STATUS_DEVICE_INCOMPATIBLE;
+            }
+
+            @Override
+            public boolean canSend() {
+                return true;
+            }
+
+            @Override
+            public int send(DeviceSession session) {
+                return action.applyAsInt(session);
+            }
+
+            @Override
+            public long sendDrainMillis() {
+                return drainMillis;
+            }
+        };
+    }
+}
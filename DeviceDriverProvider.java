@@ -0,0 +1,21 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 追加の計測器ドライバを ServiceLoader で提供する
+ *
+ * 実装クラスを META-INF/services/jp.co.jimnet.kenshin.io.bluetooth.DeviceDriverProvider に記述する。
+ */
+public interface DeviceDriverProvider {
+
+    /**
+     * @return 提供する計測器ID(DeviceInfo.Index.DEV_XXX)
+     */
+    int[] deviceIds();
+
+    /**
+     * ドライバを生成する(初回使用時に1度だけ呼ばれる)
+     *
+     * @param deviceId deviceIds() のいずれか
+     */
+    DeviceDriver create(int deviceId);
+}
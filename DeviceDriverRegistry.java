@@ -0,0 +1,100 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * 計測器IDごとのドライバ登録
+ *
+ * 計測器IDを添字とする配列で保持し、ドライバは初回使用時に生成する。
+ */
+public final class DeviceDriverRegistry {
+
+    private static final String TAG = "DeviceDriverRegistry";
+
+    private final AtomicReferenceArray<Supplier<? extends DeviceDriver>> factories;
+    private final AtomicReferenceArray<DeviceDriver> drivers;
+    private final AtomicReferenceArray<MeasurementSchema> schemas;
+
+    /**
+     * @param capacity 計測器IDの上限(ConfigData.deviceInfo の件数)
+     */
+    public DeviceDriverRegistry(int capacity) {
+        this.factories = new AtomicReferenceArray<>(capacity);
+        this.drivers = new AtomicReferenceArray<>(capacity);
+        this.schemas = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * ドライバを登録する(登録済みの場合は置き換える)
+     *
+     * @param deviceId 計測器ID(DeviceInfo.Index.DEV_XXX)
+     * @param factory  ドライバの生成処理
+     */
+    public synchronized void register(int deviceId, Supplier<? extends DeviceDriver> factory) {
+        if (deviceId < 0 || deviceId >= factories.length()) {
+            DeviceLog.w(TAG, "register: deviceId out of range (" + deviceId + ")");
+            return;
+        }
+        factories.set(deviceId, factory);
+        drivers.set(deviceId, null);
+    }
+
+    /**
+     * 受信値の項目定義を登録する(登録済みの場合は置き換える)
+     *
+     * @param deviceId 計測器ID(DeviceInfo.Index.DEV_XXX)
+     * @param schema   項目定義
+     */
+    public void registerSchema(int deviceId, MeasurementSchema schema) {
+        if (deviceId < 0 || deviceId >= schemas.length()) {
+            DeviceLog.w(TAG, "registerSchema: deviceId out of range (" + deviceId + ")");
+            return;
+        }
+        schemas.set(deviceId, schema);
+    }
+
+    /**
+     * @return 受信値の項目定義(未登録の場合は MeasurementSchema.UNTYPED)
+     */
+    public MeasurementSchema getSchema(int deviceId) {
+        MeasurementSchema schema = deviceId >= 0 && deviceId < schemas.length() ? schemas.get(deviceId) : null;
+        return schema != null ? schema : MeasurementSchema.UNTYPED;
+    }
+
+    /**
+     * ServiceLoader で見つかった DeviceDriverProvider を登録する
+     */
+    public void loadProviders(ClassLoader classLoader) {
+        for (final DeviceDriverProvider provider : ServiceLoader.load(DeviceDriverProvider.class, classLoader)) {
+            for (final int deviceId : provider.deviceIds()) {
+                if (DeviceLog.DEBUG) {
+                    DeviceLog.d(TAG, "loadProviders: " + provider.getClass().getName() + " deviceId=" + deviceId);
+                }
+                register(deviceId, () -> provider.create(deviceId));
+            }
+        }
+    }
+
+    /**
+     * @return 登録済みのドライバ(未登録の場合は null)
+     */
+    public DeviceDriver get(int deviceId) {
+        if (deviceId < 0 || deviceId >= factories.length()) {
+            return null;
+        }
+        DeviceDriver driver = drivers.get(deviceId);
+        return driver != null ? driver : create(deviceId);
+    }
+
+    private synchronized DeviceDriver create(int deviceId) {
+        DeviceDriver driver = drivers.get(deviceId);
+        Supplier<? extends DeviceDriver> factory = factories.get(deviceId);
+        if (driver == null && factory != null) {
+            driver = factory.get();
+            drivers.set(deviceId, driver);
+        }
+        return driver;
+    }
+}
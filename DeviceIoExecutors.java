@@ -0,0 +1,88 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 計測器通信用のスレッドプール生成
+ *
+ * 受信処理ごとに newSingleThreadExecutor() を生成するとスレッドが解放されずに残るため、
+ * MeasureDeviceConnector ごとに上限付きのプールを1つだけ持つ。
+ * 待ち行列も上限付きとし、通信が滞って上限を超えた要求は RejectedExecutionException で拒否する。
+ */
+final class DeviceIoExecutors {
+
+    private static final String THREAD_NAME_PREFIX = "MeasureDeviceIo-";
+
+    // 未使用スレッドを解放するまでの時間(秒)
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    // 通信スレッド1つあたりの待ち行列の上限
+    private static final int QUEUED_TASKS_PER_THREAD = 4;
+
+    private static ScheduledExecutorService deadlineScheduler;
+
+    private DeviceIoExecutors() {
+    }
+
+    /**
+     * 上限付きの計測器通信用プールを生成する
+     *
+     * @param maxThreads 同時に通信できる計測器の最大数
+     * @return 生成したプール(未使用時はスレッド数0まで縮小する)。
+     *         待ち行列(maxThreads × QUEUED_TASKS_PER_THREAD)を超えた要求は RejectedExecutionException で拒否する
+     */
+    static ExecutorService newBoundedExecutor(int maxThreads) {
+        int threads = Math.max(1, maxThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(threads * QUEUED_TASKS_PER_THREAD),
+                new DeviceIoThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 通信期限の監視用スケジューラ(全コネクタで1スレッドを共有する)
+     */
+    static synchronized ScheduledExecutorService deadlineScheduler() {
+        if (deadlineScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler =
+                    new ScheduledThreadPoolExecutor(1, new DeviceIoThreadFactory("MeasureDeviceDeadline-"));
+            // 期限前に完了した監視はすぐに破棄する
+            scheduler.setRemoveOnCancelPolicy(true);
+            deadlineScheduler = scheduler;
+        }
+        return deadlineScheduler;
+    }
+
+    private static final class DeviceIoThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger(1);
+        private final String namePrefix;
+
+        DeviceIoThreadFactory() {
+            this(THREAD_NAME_PREFIX);
+        }
+
+        DeviceIoThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, namePrefix + count.getAndIncrement());
+            // アプリ終了を妨げない
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
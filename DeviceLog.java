@@ -0,0 +1,58 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import android.util.Log;
+
+import java.util.function.Supplier;
+
+import jp.co.jimnet.kenshin.BuildConfig;
+
+/**
+ * 計測器通信のログ出力
+ *
+ * デバッグログはデバッグビルドのみ出力する。
+ * 受信バッファの文字列化など重い処理は if (DeviceLog.DEBUG) で囲むか Supplier で渡すこと。
+ * DEBUG は定数のため、リリースビルドでは R8 により囲んだ処理ごと削除される。
+ */
+public final class DeviceLog {
+
+    // デバッグログ出力有無
+    public static final boolean DEBUG = BuildConfig.DEBUG;
+
+    private DeviceLog() {
+    }
+
+    public static void d(String tag, String msg) {
+        if (DEBUG) {
+            Log.d(tag, msg);
+        }
+    }
+
+    /**
+     * メッセージの組み立てを出力時まで遅らせる
+     */
+    public static void d(String tag, Supplier<String> msg) {
+        if (DEBUG) {
+            Log.d(tag, msg.get());
+        }
+    }
+
+    /**
+     * prefix + value を出力する(出力しない場合は文字列を連結しない)
+     */
+    public static void d(String tag, String prefix, Object value) {
+        if (DEBUG) {
+            Log.d(tag, prefix + value);
+        }
+    }
+
+    public static void d(String tag, String prefix, int value) {
+        if (DEBUG) {
+            Log.d(tag, prefix + value);
+        }
+    }
+
+    public static void w(String tag, String msg) {
+        Log.w(tag, msg);
+    }
+
+}
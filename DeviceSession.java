@@ -0,0 +1,163 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 計測器との1回の通信(受信・送信)の状態
+ *
+ * 接続・受信値・パラメータ・結果を通信ごとに持つため、
+ * 1つの MeasureDeviceConnector で複数の計測器と同時に通信できる。
+ */
+public final class DeviceSession {
+
+    // 受信値・パラメータの件数
+    public static final int VALUE_COUNT = 14;
+
+    public final int deviceId;
+    public final int formId;        // 検査項目の様式ID(送信時は -1)
+    public final String address;
+    public final BluetoothSppConnection connection;
+
+    public final String[] receiveData = new String[VALUE_COUNT];
+    public final String[] receiveParam = new String[VALUE_COUNT];
+    public int receiveRet;
+
+    // 貸し出し中の受信バッファ
+    private ReceiveBufferPool bufferPool;
+    private byte[][] borrowed = new byte[2][];
+    private int borrowedCount;
+
+    // markSent() の待ち時間(ミリ秒。ドライバの sendDrainMillis())
+    private long sendDrainMillis;
+    // 送信データが送り出されるまで切断を待つ期限(System.nanoTime())
+    private long drainDeadlineNanos;
+    private boolean sent;
+    // closeConnection() 済み
+    private boolean closed;
+    // cancel() 済み
+    private volatile boolean cancelled;
+
+    DeviceSession(int deviceId, int formId, String address, BluetoothSppConnection connection, String[] params) {
+        this.deviceId = deviceId;
+        this.formId = formId;
+        this.address = address;
+        this.connection = connection;
+        for (int i = 0; i < receiveParam.length; i++) {
+            receiveParam[i] = i < params.length ? params[i] : "";
+        }
+    }
+
+    /**
+     * 同じ計測器・パラメータで別の接続を使用するセッション(再接続時)
+     */
+    DeviceSession withConnection(BluetoothSppConnection connection) {
+        return new DeviceSession(deviceId, formId, address, connection, receiveParam);
+    }
+
+    /**
+     * 受信バッファを取得する<br>
+     * 通信スレッドごとのバッファを再利用し、通信終了時に返却する
+     *
+     * @param size バッファサイズ
+     * @return 0クリア済みのバッファ
+     */
+    public byte[] receiveBuffer(int size) {
+        if (bufferPool == null) {
+            bufferPool = ReceiveBufferPool.forCurrentThread();
+        }
+        byte[] buffer = bufferPool.acquire(size);
+        if (borrowedCount == borrowed.length) {
+            borrowed = Arrays.copyOf(borrowed, borrowedCount * 2);
+        }
+        borrowed[borrowedCount++] = buffer;
+        return buffer;
+    }
+
+    /**
+     * 受信バッファをすべて返却する(通信を実行したスレッドで呼び出す)
+     */
+    void releaseBuffers() {
+        for (int i = 0; i < borrowedCount; i++) {
+            bufferPool.release(borrowed[i]);
+            borrowed[i] = null;
+        }
+        borrowedCount = 0;
+    }
+
+    /**
+     * markSent() の待ち時間を設定する(送信処理の呼び出し前に DeviceDriver.sendDrainMillis() を設定する)
+     */
+    void setSendDrainMillis(long millis) {
+        sendDrainMillis = millis;
+    }
+
+    /**
+     * 送信したことを記録する<br>
+     * 切断する場合は送信からドライバの DeviceDriver.sendDrainMillis() が経過するまで待ってから切断する
+     * (接続を保持する場合・待ち時間が 0 の場合は待たない)
+     */
+    public void markSent() {
+        markSent(sendDrainMillis);
+    }
+
+    /**
+     * 送信したことを記録する<br>
+     * 切断する場合は送信から guardMillis が経過するまで待ってから切断する(接続を保持する場合は待たない)
+     *
+     * @param guardMillis 送信データが送り出されるまでの時間(ミリ秒)
+     */
+    public void markSent(long guardMillis) {
+        if (guardMillis <= 0) {
+            sent = false;
+            return;
+        }
+        drainDeadlineNanos = System.nanoTime() + guardMillis * 1000000L;
+        sent = true;
+    }
+
+    /**
+     * markSent() で記録した時間が経過するまで待つ<br>
+     * 待つのは markSent() 後の最初の呼び出しのみ(以降の呼び出しはすぐに戻る)
+     */
+    void awaitSendDrain() {
+        if (!sent) {
+            return;
+        }
+        sent = false;
+        long remaining = drainDeadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 送信データが送り出されるのを待ってから切断する<br>
+     * ドライバの closeDevice() と通信終了時の後始末の両方から呼ばれるため、2回目以降は何もしない
+     */
+    void closeConnection() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        awaitSendDrain();
+        connection.close();
+    }
+
+    /**
+     * 受信待ちを中断する
+     */
+    void cancel() {
+        cancelled = true;
+        connection.cancel();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
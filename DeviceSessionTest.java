@@ -0,0 +1,50 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import jp.co.jimnet.kenshin.config.setdata.ConfigData;
+
+import org.junit.Test;
+
+/**
+ * DeviceSession の送信後の切断の待ち時間(ドライバごとの sendDrainMillis())
+ */
+public class DeviceSessionTest {
+
+    @Test
+    public void driverWithoutDrainClosesImmediately() {
+        DeviceSession session = newSession(DeviceDriver.ofSend(s -> 0).sendDrainMillis());
+        session.markSent();
+        assertTrue(closeMillis(session) < 100);
+    }
+
+    @Test
+    public void driverDrainDelaysClose() {
+        DeviceSession session = newSession(DeviceDriver.ofSend(s -> 0, 200L).sendDrainMillis());
+        session.markSent();
+        assertTrue(closeMillis(session) >= 150);
+    }
+
+    @Test
+    public void waitsOnlyOnce() {
+        DeviceSession session = newSession(200L);
+        session.markSent();
+        session.awaitSendDrain();
+        // 2回目以降の切断処理では待たない
+        assertTrue(closeMillis(session) < 100);
+    }
+
+    private static DeviceSession newSession(long drainMillis) {
+        DeviceSession session = new DeviceSession(0, -1, "", new BluetoothSppConnection(new ConfigData()), new String[0]);
+        session.setSendDrainMillis(drainMillis);
+        return session;
+    }
+
+    private static long closeMillis(DeviceSession session) {
+        long start = System.nanoTime();
+        session.closeConnection();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
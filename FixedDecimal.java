@@ -0,0 +1,221 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 計測値の固定小数点数(unscaled / 10^scale)
+ *
+ * 計測器の ASCII の数値(身長・体重・血圧・CAVI など)を double を経由せずに保持し、
+ * 受信した桁のまま文字列に戻す。String.valueOf(double) による "170.0" のような表記の揺れや、
+ * String.format() のロケール依存(小数点が "," になる)がなく、丸めも10進で正確に行う。
+ * 前後の空白・NUL は AsciiNumber と同様に無視する。
+ */
+final class FixedDecimal {
+
+    // 小数点以下の桁数の上限(long の範囲で 10^scale を表せる桁数)
+    static final int MAX_SCALE = 18;
+
+    private static final long[] POW10 = new long[MAX_SCALE + 1];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    // 既定値(0)
+    static final FixedDecimal ZERO = new FixedDecimal(0, 0);
+
+    private final long unscaled;
+    private final int scale;
+
+    private FixedDecimal(long unscaled, int scale) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+    }
+
+    /**
+     * @param unscaled 小数点を除いた値
+     * @param scale    小数点以下の桁数(0 ～ MAX_SCALE)
+     */
+    static FixedDecimal of(long unscaled, int scale) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale: " + scale);
+        }
+        return new FixedDecimal(unscaled, scale);
+    }
+
+    /**
+     * 受信バッファ上の数値(符号・小数点を含む)を解析する
+     *
+     * @return 数値でない場合は null
+     */
+    static FixedDecimal parse(byte[] data, int offset, int length) {
+        int end = offset + length;
+        while (offset < end && (data[offset] & 0xff) <= ' ') {
+            offset++;
+        }
+        while (end > offset && (data[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        if (offset >= end) {
+            return null;
+        }
+        boolean negative = data[offset] == '-';
+        int i = data[offset] == '-' || data[offset] == '+' ? offset + 1 : offset;
+        long unscaled = 0;
+        int scale = -1;     // 小数点以下の桁数(小数点なしは -1)
+        int digits = 0;
+        for (; i < end; i++) {
+            int b = data[i] & 0xff;
+            if (b >= '0' && b <= '9') {
+                if (unscaled > (Long.MAX_VALUE - 9) / 10 || scale >= MAX_SCALE) {
+                    // 桁数が多い
+                    return null;
+                }
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (b == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        return new FixedDecimal(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * 文字列の数値を解析する
+     *
+     * @return 数値でない場合(null を含む)は null
+     */
+    static FixedDecimal parse(CharSequence value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] data = new byte[value.length()];
+        for (int i = 0; i < data.length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            data[i] = (byte) c;
+        }
+        return parse(data, 0, data.length);
+    }
+
+    long unscaledValue() {
+        return unscaled;
+    }
+
+    int scale() {
+        return scale;
+    }
+
+    boolean isZero() {
+        return unscaled == 0;
+    }
+
+    /**
+     * 小数点以下の桁数を変更する(切り捨てる桁は四捨五入する)<br>
+     * 桁を増やす場合は 0 を補う
+     *
+     * @param newScale 小数点以下の桁数(0 ～ MAX_SCALE)
+     */
+    FixedDecimal setScale(int newScale) {
+        if (newScale < 0 || newScale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale: " + newScale);
+        }
+        if (newScale == scale) {
+            return this;
+        }
+        if (newScale > scale) {
+            long factor = POW10[newScale - scale];
+            if (Math.abs(unscaled) > Long.MAX_VALUE / factor) {
+                throw new ArithmeticException("overflow: " + this);
+            }
+            return new FixedDecimal(unscaled * factor, newScale);
+        }
+        long divisor = POW10[scale - newScale];
+        long quotient = unscaled / divisor;
+        long remainder = Math.abs(unscaled % divisor);
+        if (remainder * 2 >= divisor) {
+            // 四捨五入(絶対値を切り上げる)
+            quotient += unscaled < 0 ? -1 : 1;
+        }
+        return new FixedDecimal(quotient, newScale);
+    }
+
+    double doubleValue() {
+        // 10^scale(scale <= 18)は double で誤差なく表せるため、1回の除算で正しく丸められる
+        return scale == 0 ? (double) unscaled : unscaled / (double) POW10[scale];
+    }
+
+    /**
+     * 文字列を追加する(整数部の先頭の 0 は除き、小数点以下は scale 桁)
+     *
+     * @return sb
+     */
+    StringBuilder appendTo(StringBuilder sb) {
+        if (unscaled < 0) {
+            sb.append('-');
+        }
+        // Long.MIN_VALUE は符号を除いた値を表せないため、負の値のまま桁を取り出す
+        long negated = unscaled < 0 ? unscaled : -unscaled;
+        if (scale == 0) {
+            return appendDigits(sb, negated);
+        }
+        long divisor = POW10[scale];
+        appendDigits(sb, negated / divisor);
+        sb.append('.');
+        long fraction = -(negated % divisor);
+        for (int i = scale - 1; i >= 0; i--) {
+            sb.append((char) ('0' + fraction / POW10[i] % 10));
+        }
+        return sb;
+    }
+
+    private static StringBuilder appendDigits(StringBuilder sb, long negated) {
+        // Long.toString() と同じく負の値から桁を取り出す(0 は "0")
+        int start = sb.length();
+        do {
+            sb.insert(start, (char) ('0' - negated % 10));
+            negated /= 10;
+        } while (negated != 0);
+        return sb;
+    }
+
+    /**
+     * 文字列(整数部の先頭の 0 は除き、小数点以下は scale 桁)<br>
+     * 例: "065.5" → "65.5"、".5" → "0.5"、"-01.20" → "-1.20"
+     */
+    @Override
+    public String toString() {
+        if (scale == 0) {
+            return Long.toString(unscaled);
+        }
+        return appendTo(new StringBuilder(21)).toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FixedDecimal)) {
+            return false;
+        }
+        FixedDecimal other = (FixedDecimal) obj;
+        return unscaled == other.unscaled && scale == other.scale;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(unscaled) + scale;
+    }
+}
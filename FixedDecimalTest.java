@@ -0,0 +1,140 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.junit.Test;
+
+/**
+ * FixedDecimal の解析・丸め・文字列化
+ */
+public class FixedDecimalTest {
+
+    @Test
+    public void parsesAndKeepsReceivedScale() {
+        assertDecimal(1705, 1, "170.5");
+        assertDecimal(6550, 2, " 065.50 ");
+        assertDecimal(170, 0, "170");
+        assertDecimal(5, 1, ".5");
+        assertDecimal(5, 0, "5.");
+        assertDecimal(-120, 2, "-01.20");
+        assertDecimal(25, 2, "+0.25");
+        assertDecimal(0, 1, "\0 0.0\0");
+    }
+
+    @Test
+    public void rejectsNonNumeric() {
+        String[] inputs = {"", "   ", "\0\0", ".", "-", "+", "1.2.3", "1,5", "1e3", "12a", "1 2", "--1", "NaN"};
+        for (String input : inputs) {
+            assertNull("[" + input + "]", FixedDecimal.parse(input));
+            byte[] data = input.getBytes(StandardCharsets.US_ASCII);
+            assertNull("[" + input + "]", FixedDecimal.parse(data, 0, data.length));
+        }
+        assertNull(FixedDecimal.parse((CharSequence) null));
+        // 全角数字
+        assertNull(FixedDecimal.parse("１２"));
+    }
+
+    @Test
+    public void rejectsTooManyDigits() {
+        assertNull(FixedDecimal.parse("99999999999999999999"));
+        assertNull(FixedDecimal.parse("0.1234567890123456789"));
+        assertEquals(FixedDecimal.of(123456789012345678L, 18), FixedDecimal.parse("0.123456789012345678"));
+    }
+
+    @Test
+    public void parsesFieldInsideRecord() {
+        byte[] record = "ABC 170.5  65.0 XYZ".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(FixedDecimal.of(1705, 1), FixedDecimal.parse(record, 3, 6));
+        assertEquals(FixedDecimal.of(650, 1), FixedDecimal.parse(record, 9, 6));
+    }
+
+    @Test
+    public void setScaleRoundsHalfUpLikeFormat() {
+        // 従来の String.format("%.1f") と同じ(HALF_UP)
+        String[] inputs = {"65.25", "65.24", "65.35", "-65.25", "0.05", "-0.05", "170", "64.949", "99.95", "0"};
+        for (String input : inputs) {
+            String expected = new BigDecimal(input).setScale(1, RoundingMode.HALF_UP).toPlainString();
+            assertEquals("[" + input + "]", expected, FixedDecimal.parse(input).setScale(1).toString());
+            assertEquals("[" + input + "]", String.format(Locale.ROOT, "%.1f", new BigDecimal(input)),
+                    FixedDecimal.parse(input).setScale(1).toString());
+        }
+    }
+
+    @Test
+    public void setScaleAddsZeros() {
+        assertEquals("170.0", FixedDecimal.parse("170").setScale(1).toString());
+        assertEquals("65.500", FixedDecimal.parse("65.5").setScale(3).toString());
+        try {
+            FixedDecimal.of(Long.MAX_VALUE / 10, 0).setScale(2);
+            fail("ArithmeticException expected");
+        } catch (ArithmeticException e) {
+            // 桁あふれ
+        }
+    }
+
+    @Test
+    public void toStringDropsLeadingZerosAndKeepsScale() {
+        assertEquals("65.5", FixedDecimal.parse("065.5").toString());
+        assertEquals("0.5", FixedDecimal.parse(".5").toString());
+        assertEquals("-1.20", FixedDecimal.parse("-01.20").toString());
+        assertEquals("-0.05", FixedDecimal.parse("-0.05").toString());
+        assertEquals("0", FixedDecimal.parse("-0").toString());
+        assertEquals("0.00", FixedDecimal.ZERO.setScale(2).toString());
+        assertEquals(String.valueOf(Long.MIN_VALUE), FixedDecimal.of(Long.MIN_VALUE, 0).toString());
+        assertEquals("-9.223372036854775808", FixedDecimal.of(Long.MIN_VALUE, 18).toString());
+    }
+
+    @Test
+    public void appendToMatchesToString() {
+        FixedDecimal[] values = {FixedDecimal.parse("170.5"), FixedDecimal.parse("-0.05"), FixedDecimal.ZERO,
+                FixedDecimal.of(Long.MIN_VALUE, 3)};
+        for (FixedDecimal value : values) {
+            assertEquals(value.toString(), value.appendTo(new StringBuilder()).toString());
+        }
+        assertEquals("W=65.5", FixedDecimal.parse("65.5").appendTo(new StringBuilder("W=")).toString());
+    }
+
+    @Test
+    public void doubleValueMatchesParseDouble() {
+        String[] inputs = {"170.5", "65.50", "0.1", "-0.3", "123456.789", "0.123456789012345678", "170"};
+        for (String input : inputs) {
+            assertEquals("[" + input + "]", Double.parseDouble(input), FixedDecimal.parse(input).doubleValue(), 0);
+        }
+    }
+
+    @Test
+    public void zeroAndEquality() {
+        assertTrue(FixedDecimal.parse("0.0").isZero());
+        assertTrue(FixedDecimal.parse("-0").isZero());
+        assertFalse(FixedDecimal.parse("0.1").isZero());
+        // 値が同じでも小数点以下の桁数が違えば等しくない
+        assertFalse(FixedDecimal.parse("65.5").equals(FixedDecimal.parse("65.50")));
+        assertEquals(FixedDecimal.parse("65.5"), FixedDecimal.parse("65.50").setScale(1));
+        assertEquals(FixedDecimal.parse("65.5").hashCode(), FixedDecimal.of(655, 1).hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ofRejectsNegativeScale() {
+        FixedDecimal.of(1, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setScaleRejectsTooLargeScale() {
+        FixedDecimal.ZERO.setScale(FixedDecimal.MAX_SCALE + 1);
+    }
+
+    private static void assertDecimal(long unscaled, int scale, String input) {
+        FixedDecimal value = FixedDecimal.parse(input);
+        assertEquals("[" + input + "]", unscaled, value.unscaledValue());
+        assertEquals("[" + input + "]", scale, value.scale());
+    }
+}
@@ -0,0 +1,113 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 固定長レコードの項目位置
+ *
+ * 計測器ごとに項目の位置・桁数を定義し、受信バッファから直接数値を取得する。
+ * 位置は VB の Mid() と同じく1始まりで指定する。
+ */
+final class FixedRecordLayout {
+
+    private final int[] offsets;
+    private final int[] lengths;
+
+    /**
+     * @param positionAndLength 項目ごとの (位置, 桁数) の並び
+     */
+    FixedRecordLayout(int... positionAndLength) {
+        if (positionAndLength.length % 2 != 0) {
+            throw new IllegalArgumentException("position and length must be paired");
+        }
+        int count = positionAndLength.length / 2;
+        offsets = new int[count];
+        lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = positionAndLength[i * 2] - 1;
+            lengths[i] = positionAndLength[i * 2 + 1];
+        }
+    }
+
+    int size() {
+        return offsets.length;
+    }
+
+    /**
+     * すべての項目を含むレコードの長さ(FrameDetector.fixedLength() で切り出す長さ)
+     */
+    int length() {
+        int length = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            length = Math.max(length, offsets[i] + lengths[i]);
+        }
+        return length;
+    }
+
+    /**
+     * @throws NumberFormatException 数値でない場合
+     */
+    double getDouble(byte[] record, int field) {
+        return AsciiNumber.parseDouble(record, offsets[field], lengths[field]);
+    }
+
+    /**
+     * 項目の固定小数点数(受信した小数点以下の桁数のまま)
+     *
+     * @throws NumberFormatException 数値でない場合
+     */
+    FixedDecimal getDecimal(byte[] record, int field) {
+        FixedDecimal value = FixedDecimal.parse(record, offsets[field], lengths[field]);
+        if (value == null) {
+            throw new NumberFormatException("For input string: \"" + getText(record, field) + "\"");
+        }
+        return value;
+    }
+
+    /**
+     * @throws NumberFormatException 整数でない場合
+     */
+    int getInt(byte[] record, int field) {
+        return AsciiNumber.parseInt(record, offsets[field], lengths[field]);
+    }
+
+    /**
+     * FrameReader で切り出したレコードの項目の整数(位置はレコードの先頭から数える)
+     *
+     * @throws NumberFormatException 整数でない場合
+     * @throws IndexOutOfBoundsException レコードが項目の位置より短い場合
+     */
+    int getInt(ByteBuffer record, int field) {
+        return AsciiNumber.parseInt(record.array(), offsetIn(record, field), lengths[field]);
+    }
+
+    boolean isNumeric(byte[] record, int field) {
+        return AsciiNumber.isNumeric(record, offsets[field], lengths[field]);
+    }
+
+    /**
+     * すべての項目が数値かどうか
+     */
+    boolean isAllNumeric(byte[] record) {
+        for (int i = 0; i < offsets.length; i++) {
+            if (!isNumeric(record, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 前後の空白を除いた項目の文字列
+     */
+    String getText(byte[] record, int field) {
+        return AsciiNumber.trimmedText(record, offsets[field], lengths[field]);
+    }
+
+    private int offsetIn(ByteBuffer record, int field) {
+        if (offsets[field] + lengths[field] > record.remaining()) {
+            throw new IndexOutOfBoundsException("field " + field + " exceeds record length " + record.remaining());
+        }
+        return FrameReader.arrayOffset(record) + offsets[field];
+    }
+}
@@ -0,0 +1,139 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 受信データからフレーム(電文)の範囲を検出する
+ *
+ * FrameReader から呼び出し、フレームを String に変換せずに切り出す。
+ * 区切り文字・固定長・STX～ETX(BCC 付き)・ENQ/ACK などの制御文字の検出を用意している。
+ */
+interface FrameDetector {
+
+    // 伝送制御文字
+    byte SOH = 0x01;
+    byte STX = 0x02;
+    byte ETX = 0x03;
+    byte EOT = 0x04;
+    byte ENQ = 0x05;
+    byte ACK = 0x06;
+    byte NAK = 0x15;
+    byte CAN = 0x18;
+
+    FrameDetector ENQ_FRAME = control(ENQ);
+    FrameDetector ACK_FRAME = control(ACK);
+    FrameDetector EOT_FRAME = control(EOT);
+    FrameDetector STX_FRAME = control(STX);
+    FrameDetector CRLF_FRAME = delimiter((byte) 0x0d, (byte) 0x0a);
+    FrameDetector STX_ETX_FRAME = stxEtx(false);
+
+    /**
+     * @param buffer 受信データ(position～limit が対象)
+     * @param from   検索開始位置
+     * @return フレームの先頭位置(見つからない場合は -1)
+     */
+    int start(ByteBuffer buffer, int from);
+
+    /**
+     * @param buffer 受信データ
+     * @param start  start() で見つかった先頭位置
+     * @return フレームの終端位置(終端を含まない。フレームが未完の場合は -1)
+     */
+    int end(ByteBuffer buffer, int start);
+
+    /**
+     * 区切り文字(CR LF など)までを1フレームとする(区切り文字を含む)
+     */
+    static FrameDetector delimiter(final byte... terminator) {
+        return new FrameDetector() {
+            @Override
+            public int start(ByteBuffer buffer, int from) {
+                return from < buffer.limit() ? from : -1;
+            }
+
+            @Override
+            public int end(ByteBuffer buffer, int start) {
+                int i = indexOf(buffer, start, terminator);
+                return i < 0 ? -1 : i + terminator.length;
+            }
+        };
+    }
+
+    /**
+     * 固定長のフレーム
+     */
+    static FrameDetector fixedLength(final int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("length: " + length);
+        }
+        return new FrameDetector() {
+            @Override
+            public int start(ByteBuffer buffer, int from) {
+                return from < buffer.limit() ? from : -1;
+            }
+
+            @Override
+            public int end(ByteBuffer buffer, int start) {
+                return start + length <= buffer.limit() ? start + length : -1;
+            }
+        };
+    }
+
+    /**
+     * STX～ETX のフレーム(STX より前のデータは読み飛ばす)
+     *
+     * @param withBcc true: ETX の次の1バイト(BCC)までを含める(FrameReader.isBccValid() で検査する)
+     */
+    static FrameDetector stxEtx(final boolean withBcc) {
+        return new FrameDetector() {
+            @Override
+            public int start(ByteBuffer buffer, int from) {
+                return indexOf(buffer, from, STX);
+            }
+
+            @Override
+            public int end(ByteBuffer buffer, int start) {
+                int etx = indexOf(buffer, start + 1, ETX);
+                if (etx < 0) {
+                    return -1;
+                }
+                int end = etx + (withBcc ? 2 : 1);
+                return end <= buffer.limit() ? end : -1;
+            }
+        };
+    }
+
+    /**
+     * ENQ・ACK・EOT など1バイトの制御文字(ハンドシェイク)
+     */
+    static FrameDetector control(final byte code) {
+        return new FrameDetector() {
+            @Override
+            public int start(ByteBuffer buffer, int from) {
+                return indexOf(buffer, from, code);
+            }
+
+            @Override
+            public int end(ByteBuffer buffer, int start) {
+                return start + 1;
+            }
+        };
+    }
+
+    /**
+     * from 以降で pattern が現れる位置(見つからない場合は -1)
+     */
+    static int indexOf(ByteBuffer buffer, int from, byte... pattern) {
+        int last = buffer.limit() - pattern.length;
+        for (int i = Math.max(from, buffer.position()); i <= last; i++) {
+            int j = 0;
+            while (j < pattern.length && buffer.get(i + j) == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * FrameDetector の各検出と FrameReader によるフレームの切り出し
+ */
+public class FrameDetectorTest {
+
+    @Test
+    public void crLfSplitsLines() {
+        FrameReader reader = reader("A\r\nBC\r\nD");
+        assertEquals("A\r\n", text(reader.next(FrameDetector.CRLF_FRAME)));
+        assertEquals("BC\r\n", text(reader.next(FrameDetector.CRLF_FRAME)));
+        // 終端のない行は未完
+        assertNull(reader.next(FrameDetector.CRLF_FRAME));
+        assertEquals(1, reader.remaining());
+        assertEquals("D", text(reader.rest()));
+        assertEquals(0, reader.remaining());
+    }
+
+    @Test
+    public void delimiterMatchesWholePattern() {
+        // CR だけ・LF だけでは区切らない
+        FrameReader reader = reader("A\rB\nC\r\n");
+        assertEquals("A\rB\nC\r\n", text(reader.next(FrameDetector.delimiter((byte) 0x0d, (byte) 0x0a))));
+        assertEquals("ab|", text(reader("ab|cd").next(FrameDetector.delimiter((byte) '|'))));
+    }
+
+    @Test
+    public void fixedLengthWaitsForWholeFrame() {
+        FrameDetector detector = FrameDetector.fixedLength(3);
+        FrameReader reader = reader("12345");
+        assertEquals("123", text(reader.next(detector)));
+        assertNull(reader.next(detector));
+        assertEquals("45", text(reader.rest()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fixedLengthRejectsZero() {
+        FrameDetector.fixedLength(0);
+    }
+
+    @Test
+    public void stxEtxSkipsLeadingBytes() {
+        FrameReader reader = reader("xx\u0002ABC\u0003yy");
+        assertEquals("\u0002ABC\u0003", text(reader.next(FrameDetector.STX_ETX_FRAME)));
+        assertEquals("yy", text(reader.rest()));
+        // ETX がない場合は未完
+        assertNull(reader("\u0002ABC").next(FrameDetector.STX_ETX_FRAME));
+    }
+
+    @Test
+    public void stxEtxWithBcc() {
+        for (int type : new int[]{FrameWriter.BCC_SUM, FrameWriter.BCC_XOR}) {
+            byte[] data = FrameWriter.forCurrentThread().clear()
+                    .ascii("zz").put(FrameDetector.STX)
+                    .beginBcc(type).ascii("0201 170.5").put(FrameDetector.ETX).bcc()
+                    .toByteArray();
+            FrameReader reader = new FrameReader(data).reset(data.length);
+            ByteBuffer frame = reader.next(FrameDetector.stxEtx(true));
+            assertEquals(data.length - 2, frame.remaining());
+            assertTrue("type " + type, FrameReader.isBccValid(frame, type));
+
+            // BCC の異なるフレーム
+            data[data.length - 1]++;
+            assertFalse("type " + type, FrameReader.isBccValid(frame, type));
+        }
+        // BCC の受信前は未完
+        assertNull(reader("\u0002A\u0003").next(FrameDetector.stxEtx(true)));
+        // STX・ETX・BCC に満たないフレーム
+        assertFalse(FrameReader.isBccValid(reader("\u0002\u0003").rest(), FrameWriter.BCC_XOR));
+    }
+
+    @Test
+    public void controlFindsHandshake() {
+        FrameReader reader = reader("\u0000\u0006\u0005");
+        assertTrue(reader.contains(FrameDetector.ENQ_FRAME));
+        assertTrue(reader.contains(FrameDetector.ACK_FRAME));
+        assertFalse(reader.contains(FrameDetector.EOT_FRAME));
+        // contains() は読み取り位置を進めない
+        assertEquals(3, reader.remaining());
+        ByteBuffer ack = reader.next(FrameDetector.ACK_FRAME);
+        assertEquals(1, ack.remaining());
+        assertEquals(FrameDetector.ACK, ack.get(0));
+        assertEquals(1, reader.remaining());
+        assertFalse(reader.contains(FrameDetector.ACK_FRAME));
+        assertTrue(reader.contains(FrameDetector.ENQ_FRAME));
+    }
+
+    @Test
+    public void framesShareReceiveBuffer() {
+        byte[] data = bytes("A\r\nBC\r\n");
+        FrameReader reader = new FrameReader(data).reset(data.length);
+        reader.next(FrameDetector.CRLF_FRAME);
+        ByteBuffer frame = reader.next(FrameDetector.CRLF_FRAME);
+        assertSame(data, frame.array());
+        assertEquals(3, FrameReader.arrayOffset(frame));
+        assertEquals('B', FrameReader.byteAt(frame, 0));
+        assertEquals(0x0a, FrameReader.byteAt(frame, 3));
+        assertEquals(-1, FrameReader.byteAt(frame, 4));
+        assertEquals(-1, FrameReader.byteAt(frame, -1));
+    }
+
+    @Test
+    public void resetLimitsToReceivedSize() {
+        byte[] data = bytes("\u0005\u0000\u0000\u0006");
+        FrameReader reader = new FrameReader(data);
+        // 受信前は空
+        assertEquals(0, reader.remaining());
+        assertFalse(reader.contains(FrameDetector.ENQ_FRAME));
+        // 受信済みサイズより後ろの前回の受信データは対象外
+        assertFalse(reader.reset(3).contains(FrameDetector.ACK_FRAME));
+        assertTrue(reader.reset(4).contains(FrameDetector.ACK_FRAME));
+        assertEquals(0, reader.reset(-1).remaining());
+        assertEquals(data.length, reader.reset(100).remaining());
+    }
+
+    private static FrameReader reader(String text) {
+        byte[] data = bytes(text);
+        return new FrameReader(data).reset(data.length);
+    }
+
+    private static String text(ByteBuffer frame) {
+        return new String(frame.array(), FrameReader.arrayOffset(frame), frame.remaining(), StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
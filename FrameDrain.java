@@ -0,0 +1,79 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import jp.co.jimnet.kenshin.io.ReadResultSize;
+
+/**
+ * 接続直後に送られてくる蓄積データの読み捨て
+ *
+ * 受信したフレームごとに受信時刻を記録し、直前のフレームから quietMillis 以上あいて届いたフレームを
+ * 新しい測定値とみなす。受信間隔は受信したフレームの間でのみ判定し、mark() の後に最初に届いたフレームと
+ * それに続けて届くフレーム(蓄積データ)は、届くまでの時間にかかわらずすべて読み捨てる。
+ * このため、一定時間待たずに測定値を受け取れる。
+ *
+ * 蓄積データの最後のフレームから quietMillis 以内に届いた測定値は蓄積データとして読み捨てる。
+ * また、蓄積データがなく mark() の後に最初に届いたのが測定値の場合もその測定値は読み捨てる。
+ * いずれの場合も、次の測定値が届くまで(届かなければ受信タイムアウト・キャンセルまで)待つ。
+ */
+final class FrameDrain {
+
+    private final BluetoothSppConnection connection;
+    private final long quietNanos;
+
+    // 直前のフレームの受信時刻(mark() の後にフレームを受信していない場合は無効)
+    private long lastFrameNanos;
+    private boolean received;
+    private int discarded;
+
+    /**
+     * @param connection  接続済みの接続
+     * @param quietMillis 新しい測定値とみなす受信間隔(ミリ秒)
+     */
+    FrameDrain(BluetoothSppConnection connection, long quietMillis) {
+        this.connection = connection;
+        this.quietNanos = Math.max(0L, quietMillis) * 1000000L;
+        mark();
+    }
+
+    /**
+     * 通信開始を記録する(以後、最初に届いたフレームからの一連のフレームを蓄積データとして読み捨てる)
+     */
+    void mark() {
+        received = false;
+        discarded = 0;
+    }
+
+    /**
+     * 蓄積データを読み捨て、新しい測定値のフレームを受信する
+     *
+     * 直前のフレームから間をあけて届いたフレームを受信するまで戻らない(クラスの説明を参照)。
+     *
+     * @param buffer     受信バッファ
+     * @param resultSize 受信済みサイズ(0以下は未受信・キャンセル)
+     * @return 最後の受信の戻り値
+     */
+    int receiveFresh(byte[] buffer, ReadResultSize resultSize) {
+        while (true) {
+            int btRet = connection.receiveDeviceValue(buffer, resultSize);
+            if (resultSize.get() <= 0) {
+                // 未受信・キャンセル
+                return btRet;
+            }
+            long now = System.nanoTime();
+            boolean quiet = received && now - lastFrameNanos >= quietNanos;
+            lastFrameNanos = now;
+            received = true;
+            if (quiet) {
+                return btRet;
+            }
+            // 最初のフレーム、または直前のフレームに続けて届いた蓄積データ
+            discarded++;
+        }
+    }
+
+    /**
+     * 読み捨てたフレーム数
+     */
+    int discarded() {
+        return discarded;
+    }
+}
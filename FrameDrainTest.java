@@ -0,0 +1,122 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import jp.co.jimnet.kenshin.config.setdata.ConfigData;
+import jp.co.jimnet.kenshin.io.ReadResultSize;
+
+import org.junit.Test;
+
+/**
+ * FrameDrain の蓄積データの読み捨てと測定値の採用
+ */
+public class FrameDrainTest {
+
+    private static final long QUIET_MILLIS = 100L;
+
+    /**
+     * 指定した待ち時間の後に、フレームの先頭バイトとして受信順の番号を返す接続
+     * (予定がなくなった場合は未受信)
+     */
+    private static final class ScriptedConnection extends BluetoothSppConnection {
+
+        private final Deque<Long> delays = new ArrayDeque<>();
+        private int count;
+
+        ScriptedConnection(long... delayMillis) {
+            super(new ConfigData());
+            for (long delay : delayMillis) {
+                delays.add(delay);
+            }
+        }
+
+        @Override
+        public int receiveDeviceValue(byte[] buffer, ReadResultSize resultSize) {
+            Long delay = delays.poll();
+            if (delay == null) {
+                resultSize.set(0);
+                return StatusConstants.BT_SUCCESS;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buffer[0] = (byte) ++count;
+            resultSize.set(1);
+            return StatusConstants.BT_SUCCESS;
+        }
+    }
+
+    @Test
+    public void acceptsFrameAfterQuietGap() {
+        // 蓄積データ3件の後、間をあけて測定値
+        ReceiveResult result = receive(0, 5, 5, QUIET_MILLIS * 2);
+        assertEquals(1, result.size);
+        assertEquals(4, result.frame);
+        assertEquals(3, result.discarded);
+    }
+
+    @Test
+    public void dropsLateInitialBurst() {
+        // mark() から間をあけて届いた蓄積データも採用しない
+        ReceiveResult result = receive(QUIET_MILLIS * 2, 5, QUIET_MILLIS * 2);
+        assertEquals(3, result.frame);
+        assertEquals(2, result.discarded);
+    }
+
+    @Test
+    public void dropsSingleLateFrame() {
+        // mark() の後に最初に届いたフレームは、続くフレームがなくても採用しない
+        ReceiveResult result = receive(QUIET_MILLIS * 2, QUIET_MILLIS * 2);
+        assertEquals(2, result.frame);
+        assertEquals(1, result.discarded);
+    }
+
+    @Test
+    public void dropsMeasurementWithinQuietGap() {
+        // 蓄積データの直後に届いた測定値は読み捨て、受信タイムアウト(未受信)まで戻らない
+        ReceiveResult result = receive(0, 5, 5);
+        assertEquals(0, result.size);
+        assertEquals(3, result.discarded);
+    }
+
+    @Test
+    public void markRestartsInitialBurst() {
+        ScriptedConnection connection = new ScriptedConnection(0, QUIET_MILLIS * 2, QUIET_MILLIS * 2);
+        FrameDrain drain = new FrameDrain(connection, QUIET_MILLIS);
+        byte[] buffer = new byte[1];
+        ReadResultSize resultSize = new ReadResultSize();
+        drain.receiveFresh(buffer, resultSize);
+        assertEquals(2, buffer[0]);
+
+        // mark() の後は最初のフレームから読み捨て直す
+        drain.mark();
+        drain.receiveFresh(buffer, resultSize);
+        assertEquals(0, resultSize.get());
+        assertEquals(1, drain.discarded());
+    }
+
+    private static ReceiveResult receive(long... delayMillis) {
+        FrameDrain drain = new FrameDrain(new ScriptedConnection(delayMillis), QUIET_MILLIS);
+        byte[] buffer = new byte[1];
+        ReadResultSize resultSize = new ReadResultSize();
+        drain.receiveFresh(buffer, resultSize);
+        return new ReceiveResult(resultSize.get(), buffer[0], drain.discarded());
+    }
+
+    private static final class ReceiveResult {
+        final int size;
+        final int frame;
+        final int discarded;
+
+        ReceiveResult(int size, int frame, int discarded) {
+            this.size = size;
+            this.frame = frame;
+            this.discarded = discarded;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 受信バッファからフレームを順に切り出す
+ *
+ * 受信バッファを1回だけ ByteBuffer で包み、受信のたびに reset() で受信済みの範囲を設定して再利用する。
+ * 切り出したフレームは受信バッファを共有する ByteBuffer で、コピーや文字列変換は行わない。
+ * 受信バッファを次の受信に使用するまでの間だけ有効。
+ */
+final class FrameReader {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * @param data 受信バッファ
+     */
+    FrameReader(byte[] data) {
+        this.buffer = ByteBuffer.wrap(data);
+        buffer.limit(0);
+    }
+
+    /**
+     * 受信済みの範囲を設定し、先頭から読み直す
+     *
+     * @param length 受信済みサイズ(ReadResultSize.get()。0 以下は受信なし)
+     * @return this
+     */
+    FrameReader reset(int length) {
+        buffer.clear();
+        buffer.limit(Math.max(0, Math.min(length, buffer.capacity())));
+        return this;
+    }
+
+    /**
+     * 次のフレームを切り出す
+     *
+     * @return フレーム(見つからない・未完の場合は null で、読み取り位置は進めない)
+     */
+    ByteBuffer next(FrameDetector detector) {
+        int start = detector.start(buffer, buffer.position());
+        if (start < 0) {
+            return null;
+        }
+        int end = detector.end(buffer, start);
+        if (end < 0) {
+            return null;
+        }
+        ByteBuffer frame = slice(start, end);
+        buffer.position(end);
+        return frame;
+    }
+
+    /**
+     * 未読部分をすべて切り出す(終端のないフレームの末尾など)
+     *
+     * @return 未読部分(未読がない場合は長さ 0)
+     */
+    ByteBuffer rest() {
+        ByteBuffer frame = slice(buffer.position(), buffer.limit());
+        buffer.position(buffer.limit());
+        return frame;
+    }
+
+    /**
+     * 未読部分にフレームがあるか(読み取り位置は進めない)
+     */
+    boolean contains(FrameDetector detector) {
+        int start = detector.start(buffer, buffer.position());
+        return start >= 0 && detector.end(buffer, start) >= 0;
+    }
+
+    /**
+     * 未読のバイト数
+     */
+    int remaining() {
+        return buffer.remaining();
+    }
+
+    private ByteBuffer slice(int start, int end) {
+        ByteBuffer frame = buffer.duplicate();
+        frame.limit(end);
+        frame.position(start);
+        return frame.slice();
+    }
+
+    /**
+     * フレームの先頭からの offset バイト目(フレームより短い場合は -1)
+     */
+    static int byteAt(ByteBuffer frame, int offset) {
+        return offset >= 0 && offset < frame.remaining() ? frame.get(frame.position() + offset) & 0xff : -1;
+    }
+
+    /**
+     * 受信バッファ上のフレームの開始位置(frame.array() の添字)
+     */
+    static int arrayOffset(ByteBuffer frame) {
+        return frame.arrayOffset() + frame.position();
+    }
+
+    /**
+     * STX～ETX+BCC のフレームの BCC を検査する(BCC は STX の次から ETX までで算出)
+     *
+     * @param frame FrameDetector.stxEtx(true) で切り出したフレーム
+     * @param type  FrameWriter.BCC_SUM または FrameWriter.BCC_XOR
+     */
+    static boolean isBccValid(ByteBuffer frame, int type) {
+        int bccIndex = frame.limit() - 1;
+        if (bccIndex - frame.position() < 2) {
+            return false;
+        }
+        byte bcc = 0;
+        for (int i = frame.position() + 1; i < bccIndex; i++) {
+            bcc = type == FrameWriter.BCC_SUM ? (byte) (bcc + frame.get(i)) : (byte) (bcc ^ frame.get(i));
+        }
+        return bcc == frame.get(bccIndex);
+    }
+}
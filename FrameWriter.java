@@ -0,0 +1,235 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import jp.co.jimnet.kenshin.common.AppCharset;
+
+/**
+ * 計測器へ送信する可変内容のフレームの組み立て
+ *
+ * ASCII・Shift_JIS の項目を再利用するバッファへ直接書き込み、
+ * beginBcc() 以降に書き込んだバイトの BCC を書き込みと同時に計算する。
+ * 文字列の連結・BCC 算出のための再エンコードを行わず、1回のエンコードで送信できる。
+ * バッファはスレッドごとに1つで、forCurrentThread() のたびに内容をクリアする。
+ */
+final class FrameWriter {
+
+    // BCC 方式
+    static final int BCC_SUM = 0;
+    static final int BCC_XOR = 1;
+
+    private static final int BCC_NONE = -1;
+
+    // 氏名の前後に付加するシフトアウト・シフトイン
+    static final byte SO = 0x0e;
+    static final byte SI = 0x0f;
+
+    // 初期バッファサイズ(受診者情報の送信フレームが収まるサイズ)
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final byte ZERO = '0';
+
+    private static final ThreadLocal<FrameWriter> LOCAL = new ThreadLocal<FrameWriter>() {
+        @Override
+        protected FrameWriter initialValue() {
+            return new FrameWriter();
+        }
+    };
+
+    private final CharsetEncoder encoder = AppCharset.SHIFT_JIS.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private int bccType = BCC_NONE;
+    private byte bcc;
+
+    private FrameWriter() {
+    }
+
+    /**
+     * 呼び出し元スレッドのフレーム(内容はクリア済み)
+     */
+    static FrameWriter forCurrentThread() {
+        return LOCAL.get().clear();
+    }
+
+    /**
+     * 内容をクリアする
+     */
+    FrameWriter clear() {
+        buffer.clear();
+        bccType = BCC_NONE;
+        bcc = 0;
+        return this;
+    }
+
+    /**
+     * 1バイト(伝送制御文字など)を書き込む
+     */
+    FrameWriter put(byte value) {
+        ensure(1);
+        buffer.put(value);
+        update(value);
+        return this;
+    }
+
+    /**
+     * ASCII の文字列を書き込む(0x80 以上の文字は Shift_JIS でエンコードする)
+     */
+    FrameWriter ascii(CharSequence value) {
+        return ascii(value, 0, value.length());
+    }
+
+    /**
+     * ASCII の文字列の一部を書き込む
+     *
+     * @param value 文字列
+     * @param start 開始位置
+     * @param end   終了位置(この位置の文字は含まない)
+     */
+    FrameWriter ascii(CharSequence value, int start, int end) {
+        ensure(end - start);
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // ASCII 以外を含む場合は残りを Shift_JIS で書き込む
+                return sjis(value.subSequence(i, end));
+            }
+            buffer.put((byte) c);
+            update((byte) c);
+        }
+        return this;
+    }
+
+    /**
+     * 文字列を Shift_JIS で書き込む
+     */
+    FrameWriter sjis(CharSequence value) {
+        int start = buffer.position();
+        encode(value);
+        update(start, buffer.position());
+        return this;
+    }
+
+    private void encode(CharSequence value) {
+        CharBuffer in = CharBuffer.wrap(value);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isOverflow()) {
+                ensure(buffer.capacity());
+                continue;
+            }
+            result = encoder.flush(buffer);
+            if (result.isOverflow()) {
+                ensure(buffer.capacity());
+                continue;
+            }
+            break;
+        }
+    }
+
+    /**
+     * 右詰め・先頭0埋めの項目を書き込む(width より長い場合は切り詰めない)
+     *
+     * @param value 値(ASCII)
+     * @param width 項目のバイト数
+     */
+    FrameWriter zeroPadLeft(CharSequence value, int width) {
+        fill(ZERO, width - value.length());
+        return ascii(value);
+    }
+
+    /**
+     * 以降に書き込むバイトの BCC の計算を開始する
+     *
+     * @param type BCC_SUM: SUM方式 BCC_XOR: XOR方式
+     */
+    FrameWriter beginBcc(int type) {
+        bccType = type;
+        bcc = 0;
+        return this;
+    }
+
+    /**
+     * beginBcc() 以降に書き込んだバイトの BCC を書き込み、BCC の計算を終了する
+     */
+    FrameWriter bcc() {
+        byte value = bcc;
+        bccType = BCC_NONE;
+        return put(value);
+    }
+
+    /**
+     * 書き込み済みのバイト数
+     */
+    int length() {
+        return buffer.position();
+    }
+
+    /**
+     * 書き込み済みのバイト列(コピー)
+     */
+    byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    /**
+     * 書き込み済みのフレームを送信する
+     *
+     * @return BluetoothSppConnection.send() の戻り値
+     */
+    int send(BluetoothSppConnection connection) {
+        return connection.send(buffer.array(), buffer.position());
+    }
+
+    private FrameWriter fill(byte value, int count) {
+        if (count <= 0) {
+            return this;
+        }
+        ensure(count);
+        for (int i = 0; i < count; i++) {
+            buffer.put(value);
+            update(value);
+        }
+        return this;
+    }
+
+    private void update(byte value) {
+        switch (bccType) {
+            case BCC_SUM:
+                bcc = (byte) (bcc + value);
+                break;
+            case BCC_XOR:
+                bcc = (byte) (bcc ^ value);
+                break;
+        }
+    }
+
+    private void update(int start, int end) {
+        if (bccType == BCC_NONE) {
+            return;
+        }
+        byte[] array = buffer.array();
+        for (int i = start; i < end; i++) {
+            update(array[i]);
+        }
+    }
+
+    private void ensure(int size) {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
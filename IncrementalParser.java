@@ -0,0 +1,37 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 受信データを届いた順に処理する計測器ごとの解析処理
+ *
+ * 受信した単位(行・フレーム・断片)ごとに feed() を呼び出す。
+ * 断片をまたぐ解析の状態は実装クラスが保持し、終端のフレームを受信した時点で測定結果を確定する。
+ */
+interface IncrementalParser {
+
+    /**
+     * 受信した断片を処理する
+     *
+     * @param data   受信バッファ
+     * @param offset 断片の開始位置
+     * @param length 断片のバイト数
+     * @return true: 測定結果が確定した(以降の受信データは処理しない)
+     */
+    boolean feed(byte[] data, int offset, int length);
+
+    /**
+     * FrameReader で切り出したフレームを処理する(コピーせずに受信バッファを参照する)
+     *
+     * @param frame フレーム(position～limit)
+     * @return true: 測定結果が確定した
+     */
+    default boolean feed(ByteBuffer frame) {
+        return feed(frame.array(), FrameReader.arrayOffset(frame), frame.remaining());
+    }
+
+    /**
+     * 測定結果が確定したか
+     */
+    boolean isComplete();
+}
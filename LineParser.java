@@ -0,0 +1,64 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * CR LF 区切りの行単位の応答を逐次解析する IncrementalParser
+ *
+ * 断片をまたぐ行は内部のバッファに連結し、行が揃うたびに line() を呼び出す。
+ * 行のバッファは再利用し、行ごとの配列・文字列の生成は実装クラスが必要な場合のみ行う。
+ */
+abstract class LineParser implements IncrementalParser {
+
+    private static final byte CR = 0x0d;
+    private static final byte LF = 0x0a;
+
+    // 初期の行バッファサイズ(不足時は拡張する)
+    private static final int INITIAL_LINE_SIZE = 128;
+
+    private byte[] line = new byte[INITIAL_LINE_SIZE];
+    private int length;
+    private int lineCount;
+    private boolean complete;
+
+    @Override
+    public final boolean feed(byte[] data, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end && !complete; i++) {
+            byte b = data[i];
+            if (b != LF) {
+                append(b);
+                continue;
+            }
+            int size = this.length;
+            if (size > 0 && line[size - 1] == CR) {
+                size--;
+            }
+            this.length = 0;
+            complete = line(lineCount++, line, size);
+        }
+        return complete;
+    }
+
+    @Override
+    public final boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * 1行を処理する
+     *
+     * @param index  行番号(0始まり)
+     * @param line   行のバッファ(次の行で上書きされる)
+     * @param length 行のバイト数(CR LF を含まない)
+     * @return true: 測定結果が確定した
+     */
+    protected abstract boolean line(int index, byte[] line, int length);
+
+    private void append(byte b) {
+        if (length == line.length) {
+            byte[] grown = new byte[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+        }
+        line[length++] = b;
+    }
+}
@@ -0,0 +1,157 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * LineParser の行の分割と Aos100nwParser の測定結果の確定
+ */
+public class LineParserTest {
+
+    /**
+     * 受け取った行を記録し、"END" の行で確定する
+     */
+    private static final class RecordingParser extends LineParser {
+
+        final List<String> lines = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+
+        @Override
+        protected boolean line(int index, byte[] line, int length) {
+            indexes.add(index);
+            String text = new String(line, 0, length, StandardCharsets.US_ASCII);
+            lines.add(text);
+            return text.equals("END");
+        }
+    }
+
+    @Test
+    public void splitsOnCrLfAndLf() {
+        RecordingParser parser = new RecordingParser();
+        assertFalse(feed(parser, "A\r\nB\n\r\nC\r\r\n"));
+        assertEquals(Arrays.asList("A", "B", "", "C\r"), parser.lines);
+        assertEquals(Arrays.asList(0, 1, 2, 3), parser.indexes);
+        assertFalse(parser.isComplete());
+    }
+
+    @Test
+    public void joinsLinesAcrossFragments() {
+        String reply = "\u00021234\r\n170.5\r\nEND\r\n";
+        byte[] data = bytes(reply);
+        // 1バイトずつ、CR と LF の間で分かれる場合を含め、すべての分割位置で同じ結果になる
+        for (int split = 0; split <= data.length; split++) {
+            RecordingParser parser = new RecordingParser();
+            parser.feed(data, 0, split);
+            assertTrue("split " + split, parser.feed(data, split, data.length - split));
+            assertEquals("split " + split, Arrays.asList("\u00021234", "170.5", "END"), parser.lines);
+        }
+        RecordingParser parser = new RecordingParser();
+        for (int i = 0; i < data.length; i++) {
+            parser.feed(data, i, 1);
+        }
+        assertEquals(Arrays.asList("\u00021234", "170.5", "END"), parser.lines);
+        assertTrue(parser.isComplete());
+    }
+
+    @Test
+    public void lineWithoutTerminatorIsPending() {
+        RecordingParser parser = new RecordingParser();
+        feed(parser, "A\r\nEN");
+        assertEquals(Arrays.asList("A"), parser.lines);
+        assertTrue(feed(parser, "D\r\n"));
+        assertEquals(Arrays.asList("A", "END"), parser.lines);
+    }
+
+    @Test
+    public void ignoresDataAfterCompletion() {
+        RecordingParser parser = new RecordingParser();
+        assertTrue(feed(parser, "END\r\nX\r\n"));
+        assertTrue(feed(parser, "Y\r\n"));
+        assertEquals(Arrays.asList("END"), parser.lines);
+    }
+
+    @Test
+    public void growsLineBuffer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append((char) ('0' + i % 10));
+        }
+        String longLine = sb.toString();
+        RecordingParser parser = new RecordingParser();
+        feed(parser, longLine + "\r\nshort\r\n");
+        assertEquals(Arrays.asList(longLine, "short"), parser.lines);
+    }
+
+    @Test
+    public void aos100nwAcceptsRecord() {
+        Aos100nwParser parser = new Aos100nwParser("1234");
+        assertTrue(feed(parser, aos100nwReply("\u0002No.1234", "\u0003")));
+        assertFalse(parser.isRejected());
+        assertEquals("0.987", parser.value(1));
+        assertEquals("101", parser.value(2));
+        assertEquals("95", parser.value(3));
+    }
+
+    @Test
+    public void aos100nwRejectsOtherNumber() {
+        Aos100nwParser parser = new Aos100nwParser("1234");
+        // 受付番号の行で確定し、以降は処理しない
+        assertTrue(feed(parser, aos100nwReply("\u00025678", "\u0003")));
+        assertTrue(parser.isRejected());
+        assertNull(parser.value(1));
+    }
+
+    @Test
+    public void aos100nwRejectsMissingStxAndEtx() {
+        Aos100nwParser noStx = new Aos100nwParser("1234");
+        assertTrue(feed(noStx, aos100nwReply("1234", "\u0003")));
+        assertTrue(noStx.isRejected());
+
+        Aos100nwParser noEtx = new Aos100nwParser("1234");
+        assertTrue(feed(noEtx, aos100nwReply("\u00021234", "X")));
+        assertTrue(noEtx.isRejected());
+    }
+
+    @Test
+    public void aos100nwWaitsForEtx() {
+        Aos100nwParser parser = new Aos100nwParser("1234");
+        String reply = aos100nwReply("\u00021234", "\u0003");
+        assertFalse(feed(parser, reply.substring(0, reply.length() - 3)));
+        assertFalse(parser.isComplete());
+        assertTrue(feed(parser, reply.substring(reply.length() - 3)));
+        assertFalse(parser.isRejected());
+    }
+
+    /**
+     * 受付番号の行・読み飛ばしの14行・測定値(間に1行ずつ)・ETX の行
+     */
+    private static String aos100nwReply(String numberLine, String etxLine) {
+        StringBuilder sb = new StringBuilder(numberLine).append("\r\n");
+        for (int i = 1; i <= 14; i++) {
+            sb.append("skip").append(i).append("\r\n");
+        }
+        sb.append("0.987\r\n").append("-\r\n")
+                .append("101\r\n").append("-\r\n")
+                .append("95\r\n")
+                .append(etxLine).append("\r\n");
+        return sb.toString();
+    }
+
+    private static boolean feed(IncrementalParser parser, String text) {
+        byte[] data = bytes(text);
+        return parser.feed(data, 0, data.length);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
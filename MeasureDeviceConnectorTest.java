@@ -0,0 +1,237 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import jp.co.jimnet.kenshin.common.CheckupItem;
+import jp.co.jimnet.kenshin.config.setdata.ConfigData;
+import jp.co.jimnet.kenshin.config.setdata.DeviceInfo;
+
+import org.junit.Test;
+
+/**
+ * MeasureDeviceConnector の通信スレッドの再利用と同時通信時のセッションの分離
+ *
+ * 計測器との通信はスタブのドライバで置き換え、実際の接続は行わない。
+ */
+public class MeasureDeviceConnectorTest {
+
+    private static final int IO_THREADS = 4;
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    /**
+     * 様式ID = 計測器ID とする設定データ
+     */
+    private static final class StubConfigData extends ConfigData {
+
+        StubConfigData() {
+            for (int i = 0; i < deviceInfo.length; i++) {
+                deviceInfo[i] = new DeviceInfo();
+                deviceInfo[i].address = "00:00:00:00:00:" + i;
+            }
+        }
+
+        @Override
+        public int getDeviceId(int formId, int subId) {
+            return formId;
+        }
+    }
+
+    private static final class StubItem extends CheckupItem {
+
+        private final int formId;
+
+        StubItem(int formId) {
+            this.formId = formId;
+        }
+
+        @Override
+        public int getFormId() {
+            return formId;
+        }
+    }
+
+    @Test
+    public void receiveReusesIoThreads() throws Exception {
+        final int deviceId = DeviceInfo.Index.DEV_DTM15B;
+        // 他のコネクタの終了処理中のスレッドを除く
+        final int otherIoThreads = countIoThreads();
+        MeasureDeviceConnector connector = new MeasureDeviceConnector(new StubConfigData(), IO_THREADS);
+        connector.getDriverRegistry().register(deviceId, () -> DeviceDriver.ofReceive(session -> {
+            session.receiveData[1] = session.receiveParam[0];
+            session.receiveRet = StatusConstants.RET_SUCCESS;
+        }));
+        CheckupItem item = new StubItem(deviceId);
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            // 通信スレッド・期限の監視スレッドを起動してから基準とする
+            receiveBatches(connector, item, 10);
+            int baseline = threads.getThreadCount();
+
+            int maxThreads = baseline;
+            for (int round = 0; round < 20; round++) {
+                receiveBatches(connector, item, 50);
+                maxThreads = Math.max(maxThreads, threads.getThreadCount());
+                int ioThreads = countIoThreads() - otherIoThreads;
+                assertTrue("io threads " + ioThreads, ioThreads <= IO_THREADS);
+            }
+            // 受信ごとにスレッドが残る場合は受信の件数分(8000 件)増える(JVM 内部のスレッドの増減のみ許容する)
+            assertTrue("threads " + baseline + " -> " + maxThreads, maxThreads - baseline <= 2);
+        } finally {
+            connector.shutdown();
+        }
+    }
+
+    @Test
+    public void parallelSessionsKeepOwnResults() throws Exception {
+        final int[] deviceIds = {
+                DeviceInfo.Index.DEV_DTM15B, DeviceInfo.Index.DEV_TM2655, DeviceInfo.Index.DEV_SP350COPD,
+                DeviceInfo.Index.DEV_TX20P, DeviceInfo.Index.DEV_AOS100NW, DeviceInfo.Index.DEV_WB110};
+        final MeasureDeviceConnector connector = new MeasureDeviceConnector(new StubConfigData(), IO_THREADS);
+        for (int deviceId : deviceIds) {
+            connector.getDriverRegistry().register(deviceId, () -> new EchoDriver());
+        }
+
+        // 計測器ごとに1スレッドから、2件ずつ同時に受信する(通信スレッドは計測器数より少ない)
+        ExecutorService callers = Executors.newFixedThreadPool(deviceIds.length);
+        try {
+            List<Future<Integer>> checked = new ArrayList<>();
+            for (final int deviceId : deviceIds) {
+                checked.add(callers.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return receiveAndCheck(connector, deviceId, 300);
+                    }
+                }));
+            }
+            for (Future<Integer> future : checked) {
+                assertEquals(600, (int) future.get());
+            }
+        } finally {
+            callers.shutdownNow();
+            connector.shutdown();
+        }
+    }
+
+    /**
+     * 受信値に計測器ID・パラメータ・受信バッファの内容を返すドライバ
+     *
+     * 各値の格納の間に待ちを入れ、他のセッションの通信と交互に実行されるようにする。
+     * パラメータが "ng" で終わる場合は計測器ごとの異常終了の値(failStatus())で終了する。
+     */
+    private static final class EchoDriver implements DeviceDriver {
+
+        @Override
+        public boolean canReceive() {
+            return true;
+        }
+
+        @Override
+        public void receive(DeviceSession session) {
+            String param = session.receiveParam[0];
+            byte[] data = param.getBytes(StandardCharsets.US_ASCII);
+            byte[] buffer = session.receiveBuffer(64);
+            System.arraycopy(data, 0, buffer, 0, data.length);
+            session.receiveData[1] = String.valueOf(session.deviceId);
+            pause();
+            session.receiveData[2] = param;
+            pause();
+            session.receiveData[3] = new String(buffer, 0, data.length, StandardCharsets.US_ASCII);
+            session.receiveRet = param.endsWith("ng") ? failStatus(session.deviceId) : StatusConstants.RET_SUCCESS;
+        }
+
+        @Override
+        public boolean canSend() {
+            return false;
+        }
+
+        @Override
+        public int send(DeviceSession session) {
+            return MeasureDeviceConnector.STATUS_DEVICE_UNSPECIFIED;
+        }
+
+        private static void pause() {
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(200000L));
+        }
+    }
+
+    private static int failStatus(int deviceId) {
+        return 100 + deviceId;
+    }
+
+    /**
+     * rounds 回、2件ずつ同時に受信し、各結果が自分のセッションの値・状態のみを持つことを確かめる
+     *
+     * @return 確かめた件数
+     */
+    private static int receiveAndCheck(MeasureDeviceConnector connector, int deviceId, int rounds)
+            throws Exception {
+        CheckupItem item = new StubItem(deviceId);
+        int checked = 0;
+        for (int round = 0; round < rounds; round++) {
+            String[] params = {deviceId + "-" + round + "-ok", deviceId + "-" + round + "-ng"};
+            List<CompletableFuture<MeasurementResult>> futures = new ArrayList<>(params.length);
+            for (String param : params) {
+                futures.add(connector.receiveDeviceValueAsync(item, 0, new String[]{param}, TIMEOUT_MILLIS));
+            }
+            for (int i = 0; i < params.length; i++) {
+                MeasurementResult result = futures.get(i).get();
+                assertEquals(deviceId, result.getDeviceId());
+                if (params[i].endsWith("ng")) {
+                    assertEquals(params[i], failStatus(deviceId), result.getStatus());
+                    assertEquals(params[i], 0, result.size());
+                } else {
+                    assertEquals(params[i], StatusConstants.RET_SUCCESS, result.getStatus());
+                    assertEquals(String.valueOf(deviceId), result.getValue(1));
+                    assertEquals(params[i], result.getValue(2));
+                    assertEquals(params[i], result.getValue(3));
+                }
+                checked++;
+            }
+        }
+        return checked;
+    }
+
+    /**
+     * 待ち行列の上限(IO_THREADS × 4)を超えない件数ずつ同時に受信する
+     */
+    private static void receiveBatches(MeasureDeviceConnector connector, CheckupItem item, int batches)
+            throws Exception {
+        final int perBatch = IO_THREADS * 2;
+        List<CompletableFuture<MeasurementResult>> futures = new ArrayList<>(perBatch);
+        for (int batch = 0; batch < batches; batch++) {
+            futures.clear();
+            for (int i = 0; i < perBatch; i++) {
+                futures.add(connector.receiveDeviceValueAsync(item, 0, new String[]{"v" + i}, TIMEOUT_MILLIS));
+            }
+            for (int i = 0; i < perBatch; i++) {
+                MeasurementResult result = futures.get(i).get();
+                assertEquals(StatusConstants.RET_SUCCESS, result.getStatus());
+                assertEquals("v" + i, result.getValue(1));
+            }
+        }
+    }
+
+    private static int countIoThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("MeasureDeviceIo-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
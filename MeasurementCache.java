@@ -0,0 +1,152 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 計測器ごとの受診者単位の測定結果キャッシュ
+ *
+ * 身長・体重・体脂肪を1回で測定する計測器(TBF-210、DC-430、DC-250 など)では、
+ * 検査項目ごとの receiveDeviceValue() のたびに接続・測定をやり直さないよう、
+ * 同じ受診者・同じパラメータの測定結果(測定中を含む)を共有する。
+ * 対象は登録した計測器のみで、受診者の切り替え(setPatient())・invalidate() で破棄する。
+ * 正常終了以外の結果は保持しない。
+ */
+final class MeasurementCache {
+
+    // 既定の測定結果の保持時間(ミリ秒)
+    static final long DEFAULT_TTL_MILLIS = 2 * 60 * 1000L;
+
+    private static final class Entry {
+        final String[] params;
+        final CompletableFuture<MeasurementResult> future;
+        final long createdNanos;
+
+        Entry(String[] params, CompletableFuture<MeasurementResult> future) {
+            this.params = params;
+            this.future = future;
+            this.createdNanos = System.nanoTime();
+        }
+    }
+
+    private final long ttlNanos;
+    private final boolean[] shared;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    // 測定中の受診者(null の間はキャッシュしない)
+    private String patientKey;
+
+    /**
+     * @param ttlMillis       測定結果の保持時間(ミリ秒)
+     * @param sharedDeviceIds 測定結果を共有する計測器ID
+     */
+    MeasurementCache(long ttlMillis, int[] sharedDeviceIds) {
+        this.ttlNanos = Math.max(1L, ttlMillis) * 1000000L;
+        int max = -1;
+        for (int deviceId : sharedDeviceIds) {
+            max = Math.max(max, deviceId);
+        }
+        this.shared = new boolean[max + 1];
+        for (int deviceId : sharedDeviceIds) {
+            if (deviceId >= 0) {
+                shared[deviceId] = true;
+            }
+        }
+    }
+
+    /**
+     * 測定中の受診者を設定する(受診者が変わった場合は保持中の結果を破棄する)
+     *
+     * @param patientKey 受診者を識別する値(null でキャッシュを停止)
+     */
+    synchronized void setPatient(String patientKey) {
+        if (patientKey == null ? this.patientKey != null : !patientKey.equals(this.patientKey)) {
+            entries.clear();
+        }
+        this.patientKey = patientKey;
+    }
+
+    /**
+     * 保持中の結果をすべて破棄する
+     */
+    synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * 計測器の保持中の結果を破棄する(同じ受診者の再測定時など)
+     */
+    synchronized void invalidate(int deviceId) {
+        entries.remove(deviceId);
+    }
+
+    /**
+     * 保持中の結果(測定中を含む)を返す。ない場合は receive で測定を開始して保持する<br>
+     * 測定の開始(接続など)はロック外で行い、開始までの間は同じ計測器の呼び出し元に仮の結果を共有する
+     *
+     * @param deviceId 計測器ID
+     * @param params   計測器ごとのパラメータ(異なる場合は測定し直す)
+     * @param receive  測定の開始
+     * @return 測定結果(cancel() すると測定も中断する)
+     */
+    CompletableFuture<MeasurementResult> getOrReceive(int deviceId, String[] params,
+                                                      Supplier<CompletableFuture<MeasurementResult>> receive) {
+        final CompletableFuture<MeasurementResult> placeholder;
+        synchronized (this) {
+            if (patientKey != null && deviceId >= 0 && deviceId < shared.length && shared[deviceId]) {
+                Entry entry = entries.get(deviceId);
+                if (entry != null && Arrays.equals(entry.params, params) && !isExpired(entry, System.nanoTime())) {
+                    DeviceLog.d("MeasurementCache", "getOrReceive: reuse deviceId=", deviceId);
+                    return entry.future;
+                }
+                placeholder = new CompletableFuture<>();
+                entries.put(deviceId, new Entry(params != null ? params.clone() : null, placeholder));
+            } else {
+                placeholder = null;
+            }
+        }
+        if (placeholder == null) {
+            return receive.get();
+        }
+
+        final CompletableFuture<MeasurementResult> started;
+        try {
+            started = receive.get();
+        } catch (RuntimeException e) {
+            remove(deviceId, placeholder);
+            placeholder.completeExceptionally(e);
+            throw e;
+        }
+        started.whenComplete((result, e) -> {
+            if (e != null) {
+                placeholder.completeExceptionally(e);
+            } else {
+                placeholder.complete(result);
+            }
+        });
+        placeholder.whenComplete((result, e) -> {
+            if (e != null || result == null || !result.isSuccess()) {
+                remove(deviceId, placeholder);
+            }
+            if (e != null) {
+                // 取消し: 測定を中断する
+                started.completeExceptionally(e);
+            }
+        });
+        return placeholder;
+    }
+
+    private synchronized void remove(int deviceId, CompletableFuture<MeasurementResult> future) {
+        Entry entry = entries.get(deviceId);
+        if (entry != null && entry.future == future) {
+            entries.remove(deviceId);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        // 測定中の結果は期限切れにしない
+        return entry.future.isDone() && now - entry.createdNanos >= ttlNanos;
+    }
+}
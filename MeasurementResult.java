@@ -0,0 +1,181 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 計測器との1回の通信(受信・送信)の結果
+ *
+ * 受信値は文字列のほか、MeasurementSchema の数値項目のみを数値(double)として取得できる。
+ * 数値項目は最初に数値を取得したときに1回だけ解析し、有効な項目のビットマスクとともに保持する。
+ * 値を保存・送信する呼び出し側は getDouble() / copyTo(double[]) で文字列を経由せずに取得できる。
+ * 項目名・単位は計測器ごとの MeasurementSchema による。
+ */
+public class MeasurementResult {
+
+    private final int deviceId;
+    private final int status;
+    private final String[] values;
+    private final MeasurementSchema schema;
+    private double[] numbers;
+    // 数値として有効な項目(receiveData の添字のビット)
+    private int validMask;
+    // numbers・validMask の解析済み(書き込み後に設定する)
+    private volatile boolean parsed;
+
+    /**
+     * 値を持たない結果(送信、または受信失敗)
+     */
+    public MeasurementResult(int deviceId, int status) {
+        this(deviceId, status, null);
+    }
+
+    /**
+     * @param deviceId 計測器ID
+     * @param status   StatusConstants.RET_XXX または MeasureDeviceConnector.STATUS_XXX
+     * @param values   受信値(receiveData)。正常終了時のみ前後の空白を除いて保持する
+     */
+    public MeasurementResult(int deviceId, int status, String[] values) {
+        this(deviceId, status, values, MeasurementSchema.UNTYPED);
+    }
+
+    /**
+     * @param deviceId 計測器ID
+     * @param status   StatusConstants.RET_XXX または MeasureDeviceConnector.STATUS_XXX
+     * @param values   受信値(receiveData)。正常終了時のみ前後の空白を除いて保持する
+     * @param schema   計測器の項目定義
+     */
+    public MeasurementResult(int deviceId, int status, String[] values, MeasurementSchema schema) {
+        this.deviceId = deviceId;
+        this.status = status;
+        if (values != null && status == StatusConstants.RET_SUCCESS) {
+            this.values = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                this.values[i] = values[i] != null ? values[i].trim() : "";
+            }
+        } else {
+            this.values = new String[0];
+        }
+        this.schema = schema != null ? schema : MeasurementSchema.UNTYPED;
+    }
+
+    /**
+     * 数値項目を解析する(初回のみ。解析できない項目は NaN・無効)<br>
+     * 複数のスレッドから同時に呼ばれた場合も結果は同じため、排他はしない
+     */
+    private void parseNumbers() {
+        if (parsed) {
+            return;
+        }
+        double[] parsedNumbers = new double[values.length];
+        int mask = 0;
+        int numericMask = schema.getNumericMask();
+        for (int i = 0; i < values.length; i++) {
+            double number = Double.NaN;
+            if ((numericMask & (1 << i)) != 0) {
+                number = AsciiNumber.parseDouble(values[i], Double.NaN);
+                if (!Double.isNaN(number)) {
+                    mask |= 1 << i;
+                }
+            }
+            parsedNumbers[i] = number;
+        }
+        numbers = parsedNumbers;
+        validMask = mask;
+        parsed = true;
+    }
+
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == StatusConstants.RET_SUCCESS;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param index receiveData と同じ添字
+     * @return 受信値(範囲外は空文字)
+     */
+    public String getValue(int index) {
+        return index >= 0 && index < values.length ? values[index] : "";
+    }
+
+    /**
+     * @param index receiveData と同じ添字
+     * @return 数値(範囲外・数値でない場合は NaN)
+     */
+    public double getDouble(int index) {
+        return isValid(index) ? numbers[index] : Double.NaN;
+    }
+
+    /**
+     * 数値として有効な項目か
+     *
+     * @param index receiveData と同じ添字
+     */
+    public boolean isValid(int index) {
+        return index >= 0 && index < values.length && (getValidMask() & (1 << index)) != 0;
+    }
+
+    /**
+     * 数値として有効な項目(receiveData の添字のビット)
+     */
+    public int getValidMask() {
+        parseNumbers();
+        return validMask;
+    }
+
+    /**
+     * 計測器の項目定義
+     */
+    public MeasurementSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param index receiveData と同じ添字
+     * @return 単位(未定義の場合は空文字)
+     */
+    public String getUnit(int index) {
+        return schema.getUnit(index);
+    }
+
+    /**
+     * 数値を呼び出し側の配列に詰め替える(配列は再利用できる)
+     *
+     * @param target 格納先(receiveData と同じ添字。無効な項目は NaN)
+     * @return 数値として有効な項目(getValidMask() と同じ)
+     */
+    public int copyTo(double[] target) {
+        int mask = getValidMask();
+        int length = Math.min(target.length, numbers.length);
+        System.arraycopy(numbers, 0, target, 0, length);
+        for (int i = length; i < target.length; i++) {
+            target[i] = Double.NaN;
+        }
+        return mask;
+    }
+
+    /**
+     * 従来の receiveBuffer 形式に詰め替える(互換用)
+     */
+    public void copyTo(List<String> receiveBuffer) {
+        receiveBuffer.clear();
+        receiveBuffer.addAll(Arrays.asList(values));
+    }
+
+    @Override
+    public String toString() {
+        return "MeasurementResult{deviceId=" + deviceId + ", status=" + status
+                + ", values=" + Arrays.toString(values) + "}";
+    }
+}
@@ -0,0 +1,88 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * MeasurementResult の受信値と項目定義による数値の取得
+ */
+public class MeasurementResultTest {
+
+    private static final MeasurementSchema SCHEMA = new MeasurementSchema()
+            .numeric(1, "身長", "cm")
+            .numeric(2, "体重", "kg")
+            .text(3, "氏名");
+
+    @Test
+    public void parsesOnlyNumericSlots() {
+        MeasurementResult result = new MeasurementResult(1, StatusConstants.RET_SUCCESS,
+                new String[]{"", " 170.5 ", "abc", "12", "34"}, SCHEMA);
+        assertEquals(1 << 1, result.getValidMask());
+        assertEquals(170.5, result.getDouble(1), 0);
+        assertTrue(Double.isNaN(result.getDouble(2)));
+        // 文字列項目・未定義の項目は数値として解析できても無効
+        assertFalse(result.isValid(3));
+        assertFalse(result.isValid(4));
+        assertTrue(Double.isNaN(result.getDouble(4)));
+        assertEquals("cm", result.getUnit(1));
+        assertEquals("", result.getUnit(4));
+    }
+
+    @Test
+    public void untypedHasNoNumericSlots() {
+        MeasurementResult result = new MeasurementResult(1, StatusConstants.RET_SUCCESS, new String[]{"1", "2.5"});
+        assertEquals(0, result.getValidMask());
+        assertTrue(Double.isNaN(result.getDouble(1)));
+        assertEquals("2.5", result.getValue(1));
+        assertFalse(MeasurementSchema.UNTYPED.isNumeric(1));
+    }
+
+    @Test
+    public void trimsValuesOnSuccessOnly() {
+        MeasurementResult success = new MeasurementResult(1, StatusConstants.RET_SUCCESS,
+                new String[]{null, " 65.0 "}, SCHEMA);
+        assertEquals(Arrays.asList("", "65.0"), receiveBuffer(success));
+
+        MeasurementResult cancel = new MeasurementResult(1, StatusConstants.RET_ERR_CANCEL,
+                new String[]{"", " 65.0 "}, SCHEMA);
+        assertEquals(0, cancel.size());
+        assertEquals(0, cancel.getValidMask());
+        assertEquals("", cancel.getValue(1));
+    }
+
+    @Test
+    public void copyToFillsNaNForInvalidSlots() {
+        MeasurementResult result = new MeasurementResult(1, StatusConstants.RET_SUCCESS,
+                new String[]{"", "170.5", "", "x"}, SCHEMA);
+        double[] target = {9, 9, 9, 9, 9, 9};
+        assertEquals(result.getValidMask(), result.copyTo(target));
+        assertEquals(170.5, target[1], 0);
+        for (int i : new int[]{0, 2, 3, 4, 5}) {
+            assertTrue("[" + i + "]", Double.isNaN(target[i]));
+        }
+    }
+
+    @Test
+    public void outOfRangeIndex() {
+        MeasurementResult result = new MeasurementResult(1, StatusConstants.RET_SUCCESS, new String[]{"", "1"}, SCHEMA);
+        assertEquals("", result.getValue(-1));
+        assertEquals("", result.getValue(5));
+        assertFalse(result.isValid(-1));
+        assertFalse(result.isValid(5));
+        assertTrue(Double.isNaN(result.getDouble(5)));
+    }
+
+    private static List<String> receiveBuffer(MeasurementResult result) {
+        List<String> buffer = new ArrayList<>();
+        buffer.add("old");
+        result.copyTo(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,82 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 計測器ごとの受信値(receiveData)の項目定義
+ *
+ * receiveData の添字ごとに項目名・単位・数値項目かどうかを持ち、
+ * MeasurementResult の数値の取得・表示に使用する。
+ * DeviceDriverRegistry.registerSchema() で計測器IDごとに登録する(登録後は変更しないこと)。
+ */
+public final class MeasurementSchema {
+
+    // 項目定義のない計測器(数値項目なし。受信値は文字列としてのみ取得する)
+    public static final MeasurementSchema UNTYPED = new MeasurementSchema();
+
+    private final String[] names = new String[DeviceSession.VALUE_COUNT];
+    private final String[] units = new String[DeviceSession.VALUE_COUNT];
+    private int numericMask;
+
+    /**
+     * 数値項目を定義する
+     *
+     * @param index receiveData の添字
+     * @param name  項目名
+     * @param unit  単位(単位のない値は空文字)
+     * @return this
+     */
+    public MeasurementSchema numeric(int index, String name, String unit) {
+        names[index] = name;
+        units[index] = unit;
+        numericMask |= 1 << index;
+        return this;
+    }
+
+    /**
+     * 文字列項目を定義する
+     *
+     * @param index receiveData の添字
+     * @param name  項目名
+     * @return this
+     */
+    public MeasurementSchema text(int index, String name) {
+        names[index] = name;
+        units[index] = "";
+        numericMask &= ~(1 << index);
+        return this;
+    }
+
+    /**
+     * 項目が定義されているか
+     */
+    public boolean isDefined(int index) {
+        return index >= 0 && index < names.length && names[index] != null;
+    }
+
+    /**
+     * 数値項目か(未定義の項目は数値項目でない)
+     */
+    public boolean isNumeric(int index) {
+        return isDefined(index) && (numericMask & (1 << index)) != 0;
+    }
+
+    /**
+     * 数値項目(receiveData の添字のビット)
+     */
+    int getNumericMask() {
+        return numericMask;
+    }
+
+    /**
+     * @return 項目名(未定義の場合は空文字)
+     */
+    public String getName(int index) {
+        return isDefined(index) ? names[index] : "";
+    }
+
+    /**
+     * @return 単位(未定義の場合は空文字)
+     */
+    public String getUnit(int index) {
+        return isDefined(index) ? units[index] : "";
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 最上位ビットのパリティの付加・除去
+ *
+ * 1バイトごとにビットを数える代わりに、256件の変換表で1回の走査で処理する。
+ */
+final class ParityCodec {
+
+    static final int EVEN = 0;
+    static final int ODD = 1;
+
+    // 下位7ビットに対するパリティ付加後の値(添字は元のバイト 0～255)
+    private static final byte[] EVEN_TABLE = new byte[256];
+    private static final byte[] ODD_TABLE = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int data = i & 0x7f;
+            boolean odd = (Integer.bitCount(data) & 1) != 0;
+            EVEN_TABLE[i] = (byte) (odd ? data | 0x80 : data);
+            ODD_TABLE[i] = (byte) (odd ? data : data | 0x80);
+        }
+    }
+
+    private ParityCodec() {
+    }
+
+    /**
+     * 先頭 length バイトの最上位ビットにパリティを付加する
+     *
+     * @param type EVEN または ODD
+     */
+    static void set(byte[] data, int length, int type) {
+        byte[] table = (type & 1) == ODD ? ODD_TABLE : EVEN_TABLE;
+        int end = Math.min(length, data.length);
+        for (int i = 0; i < end; i++) {
+            data[i] = table[data[i] & 0xff];
+        }
+    }
+
+    /**
+     * 先頭 length バイトの最上位ビットを除去する
+     */
+    static void strip(byte[] data, int length) {
+        int end = Math.min(length, data.length);
+        for (int i = 0; i < end; i++) {
+            data[i] &= 0x7f;
+        }
+    }
+}
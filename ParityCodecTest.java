@@ -0,0 +1,121 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * ParityCodec の変換表が従来の SetParity / RemoveParity のビット単位の処理と同じ結果になること
+ */
+public class ParityCodecTest {
+
+    @Test
+    public void evenTableMatchesBitLoop() {
+        assertSetMatchesBitLoop(ParityCodec.EVEN);
+    }
+
+    @Test
+    public void oddTableMatchesBitLoop() {
+        assertSetMatchesBitLoop(ParityCodec.ODD);
+    }
+
+    @Test
+    public void typeUsesLowestBitOnly() {
+        // 従来どおり pType & 1 で判定する
+        byte[] expected = allBytes();
+        byte[] actual = allBytes();
+        oldSetParity(expected, expected.length, 3);
+        ParityCodec.set(actual, actual.length, 3);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void setHonoursLength() {
+        byte[] expected = allBytes();
+        byte[] actual = allBytes();
+        oldSetParity(expected, 10, ParityCodec.EVEN);
+        ParityCodec.set(actual, 10, ParityCodec.EVEN);
+        assertArrayEquals(expected, actual);
+
+        // 配列より長い length は配列の末尾まで
+        expected = allBytes();
+        actual = allBytes();
+        oldSetParity(expected, 1000, ParityCodec.ODD);
+        ParityCodec.set(actual, 1000, ParityCodec.ODD);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void stripMatchesRemoveParity() {
+        byte[] expected = allBytes();
+        byte[] actual = allBytes();
+        oldRemoveParity(expected, expected.length);
+        // 従来どおり末尾1バイトは除去対象外(呼び出し側で intLen - 1 を渡す)
+        ParityCodec.strip(actual, actual.length - 1);
+        assertArrayEquals(expected, actual);
+        assertEquals((byte) 0xff, actual[255]);
+    }
+
+    @Test
+    public void setThenStripRestoresFrame() {
+        byte[] frame = "W 065.50kg\r\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] sent = frame.clone();
+        ParityCodec.set(sent, sent.length, ParityCodec.EVEN);
+        ParityCodec.strip(sent, sent.length);
+        assertArrayEquals(frame, sent);
+    }
+
+    private static void assertSetMatchesBitLoop(int type) {
+        byte[] expected = allBytes();
+        byte[] actual = allBytes();
+        oldSetParity(expected, expected.length, type);
+        ParityCodec.set(actual, actual.length, type);
+        for (int i = 0; i < 256; i++) {
+            assertEquals("0x" + Integer.toHexString(i), expected[i], actual[i]);
+        }
+    }
+
+    private static byte[] allBytes() {
+        byte[] data = new byte[256];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    /**
+     * 従来の SetParity(ログ出力を除く)
+     */
+    private static void oldSetParity(byte[] pData, int intLen, int pType) {
+        for (int i = 0; i < intLen; i++) {
+            if (i >= pData.length) {
+                break;
+            }
+            pData[i] = (byte) (pData[i] & Byte.MAX_VALUE);
+            int c = pType & 1;
+            for (int j = 1; j <= Byte.MAX_VALUE + 1; j *= 2) {
+                if ((pData[i] & j) != 0) {
+                    c = c ^ 1;
+                }
+            }
+            if (c == 1) {
+                pData[i] = (byte) (pData[i] | Byte.MAX_VALUE + 1);
+            }
+        }
+    }
+
+    /**
+     * 従来の RemoveParity の除去処理(パリティエラーは判定しない)
+     */
+    private static void oldRemoveParity(byte[] pData, int intLen) {
+        for (int i = 0; i < intLen - 1; i++) {
+            if (i >= pData.length) {
+                break;
+            }
+            pData[i] = (byte) (pData[i] & Byte.MAX_VALUE);
+        }
+    }
+}
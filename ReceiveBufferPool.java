@@ -0,0 +1,71 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.Arrays;
+
+/**
+ * 計測器通信スレッドごとの受信バッファ
+ *
+ * 受信処理ごとの byte[1000～3000] の確保をやめ、同じスレッドの次の受信で再利用する。
+ * バッファは要求サイズちょうどで、貸し出し時に0クリアする。
+ */
+final class ReceiveBufferPool {
+
+    // 1スレッドで保持するバッファ数の上限(計測器ごとの受信サイズの種類数)
+    private static final int MAX_POOLED = 4;
+
+    private static final ThreadLocal<ReceiveBufferPool> LOCAL = new ThreadLocal<ReceiveBufferPool>() {
+        @Override
+        protected ReceiveBufferPool initialValue() {
+            return new ReceiveBufferPool();
+        }
+    };
+
+    private final byte[][] buffers = new byte[MAX_POOLED][];
+    private final boolean[] inUse = new boolean[MAX_POOLED];
+    private int count;
+
+    private ReceiveBufferPool() {
+    }
+
+    /**
+     * 呼び出し元スレッドのバッファ
+     */
+    static ReceiveBufferPool forCurrentThread() {
+        return LOCAL.get();
+    }
+
+    /**
+     * バッファを借りる(同じサイズが貸し出し中の場合は新たに確保する)
+     *
+     * @param size バッファサイズ
+     * @return 0クリア済みのバッファ(使用後は release() で返却する)
+     */
+    byte[] acquire(int size) {
+        for (int i = 0; i < count; i++) {
+            if (!inUse[i] && buffers[i].length == size) {
+                inUse[i] = true;
+                Arrays.fill(buffers[i], (byte) 0);
+                return buffers[i];
+            }
+        }
+        byte[] buffer = new byte[size];
+        if (count < MAX_POOLED) {
+            buffers[count] = buffer;
+            inUse[count] = true;
+            count++;
+        }
+        return buffer;
+    }
+
+    /**
+     * バッファを返却する(プール対象外のバッファは無視する)
+     */
+    void release(byte[] buffer) {
+        for (int i = 0; i < count; i++) {
+            if (buffers[i] == buffer) {
+                inUse[i] = false;
+                return;
+            }
+        }
+    }
+}
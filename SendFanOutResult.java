@@ -0,0 +1,65 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 複数の計測器への一括送信の結果
+ *
+ * @see MeasureDeviceConnector#sendDeviceValues(int[], String[], long)
+ */
+public class SendFanOutResult {
+
+    private final List<MeasurementResult> results;
+    private final long elapsedMillis;
+
+    /**
+     * @param results       計測器ごとの送信結果(指定した計測器の順)
+     * @param elapsedMillis 送信開始から全計測器の完了までの時間(ミリ秒)
+     */
+    public SendFanOutResult(List<MeasurementResult> results, long elapsedMillis) {
+        this.results = Collections.unmodifiableList(results);
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 計測器ごとの送信結果(指定した計測器の順)
+     */
+    public List<MeasurementResult> getResults() {
+        return results;
+    }
+
+    /**
+     * @param deviceId 計測器ID
+     * @return 送信結果(送信対象でない場合は null)
+     */
+    public MeasurementResult get(int deviceId) {
+        for (MeasurementResult result : results) {
+            if (result.getDeviceId() == deviceId) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * すべての計測器への送信が正常終了したか
+     */
+    public boolean isAllSuccess() {
+        for (MeasurementResult result : results) {
+            if (!result.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "SendFanOutResult{results=" + results + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
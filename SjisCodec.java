@@ -0,0 +1,131 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+import jp.co.jimnet.kenshin.common.AppCharset;
+
+/**
+ * 計測器との送受信データの Shift_JIS 変換
+ *
+ * ByteUtil.bytesToString() / String.getBytes(AppCharset.SHIFT_JIS) と同じ結果を返す。
+ * 受信データの大半は数字・区切り文字のみのため、ASCII のみの範囲はデコーダを通さずに変換し、
+ * 氏名など ASCII 以外を含む場合のみスレッドごとに再利用する CharsetEncoder / CharsetDecoder で変換する。
+ * 変換できない文字は置換文字(エンコード: '?'、デコード: U+FFFD)に置き換える。
+ */
+final class SjisCodec {
+
+    // 初期の作業バッファサイズ(受信バッファの大半が収まるサイズ)
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final ThreadLocal<SjisCodec> LOCAL = new ThreadLocal<SjisCodec>() {
+        @Override
+        protected SjisCodec initialValue() {
+            return new SjisCodec();
+        }
+    };
+
+    private final CharsetEncoder encoder = AppCharset.SHIFT_JIS.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharsetDecoder decoder = AppCharset.SHIFT_JIS.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+    private SjisCodec() {
+    }
+
+    /**
+     * ByteUtil.bytesToString(data, offset, length) に相当
+     */
+    static String decode(byte[] data, int offset, int length) {
+        return LOCAL.get().decodeBytes(data, offset, length);
+    }
+
+    /**
+     * value.getBytes(AppCharset.SHIFT_JIS) に相当
+     */
+    static byte[] encode(CharSequence value) {
+        return LOCAL.get().encodeChars(value);
+    }
+
+    private String decodeBytes(byte[] data, int offset, int length) {
+        if (length == 0) {
+            return "";
+        }
+        // Shift_JIS は1バイトから2文字以上にならない
+        char[] out = chars(length);
+        int i = 0;
+        for (; i < length; i++) {
+            byte b = data[offset + i];
+            if (b < 0) {
+                break;
+            }
+            out[i] = (char) b;
+        }
+        if (i == length) {
+            return new String(out, 0, length);
+        }
+
+        // ASCII 以外を含む場合は、先頭の ASCII 部分に続けてデコードする
+        CharBuffer dst = CharBuffer.wrap(out, i, length - i);
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(data, offset + i, length - i), dst, true);
+        decoder.flush(dst);
+        return new String(out, 0, dst.position());
+    }
+
+    private byte[] encodeChars(CharSequence value) {
+        int length = value.length();
+        byte[] ascii = new byte[length];
+        int i = 0;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            ascii[i] = (byte) c;
+        }
+        if (i == length) {
+            return ascii;
+        }
+
+        // ASCII 以外を含む場合は、先頭の ASCII 部分に続けてエンコードする
+        byte[] out = bytes(i + (int) Math.ceil((length - i) * (double) encoder.maxBytesPerChar()));
+        System.arraycopy(ascii, 0, out, 0, i);
+        ByteBuffer dst = ByteBuffer.wrap(out, i, out.length - i);
+        CharBuffer src = CharBuffer.wrap(value, i, length);
+        encoder.reset();
+        CoderResult result = encoder.encode(src, dst, true);
+        if (!result.isOverflow()) {
+            result = encoder.flush(dst);
+        }
+        if (result.isOverflow()) {
+            // maxBytesPerChar() で確保しているため発生しない
+            throw new IllegalStateException("buffer overflow");
+        }
+        return Arrays.copyOf(out, dst.position());
+    }
+
+    private char[] chars(int size) {
+        if (chars.length < size) {
+            chars = new char[Math.max(chars.length * 2, size)];
+        }
+        return chars;
+    }
+
+    private byte[] bytes(int size) {
+        if (bytes.length < size) {
+            bytes = new byte[Math.max(bytes.length * 2, size)];
+        }
+        return bytes;
+    }
+}
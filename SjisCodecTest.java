@@ -0,0 +1,101 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import jp.co.jimnet.kenshin.common.AppCharset;
+
+/**
+ * SjisCodec が String.getBytes(AppCharset.SHIFT_JIS) / new String(data, AppCharset.SHIFT_JIS) と同じ結果になること
+ */
+public class SjisCodecTest {
+
+    private static final String[] TEXTS = {
+            "",
+            "0201\t170.5\t65.0\r\n",
+            "山田 太郎",
+            "ﾔﾏﾀﾞ ﾀﾛｳ",
+            "ABC山田ｱｲｳ123",
+            "右踵骨\r\n男性\r\n",
+            // Shift_JIS にない文字は '?' に置き換える
+            "\u20AC\uD83D\uDE00",
+            "A\uD83D\uDE00B",
+            "髙橋",
+            // 対になっていないサロゲート
+            "A\uD800B",
+    };
+
+    @Test
+    public void encodeMatchesGetBytes() {
+        for (String text : TEXTS) {
+            assertArrayEquals("[" + text + "]", text.getBytes(AppCharset.SHIFT_JIS), SjisCodec.encode(text));
+        }
+    }
+
+    @Test
+    public void decodeMatchesNewString() {
+        for (String text : TEXTS) {
+            byte[] data = text.getBytes(AppCharset.SHIFT_JIS);
+            assertEquals("[" + text + "]", new String(data, AppCharset.SHIFT_JIS), SjisCodec.decode(data, 0, data.length));
+        }
+    }
+
+    @Test
+    public void roundTripKeepsMappableText() {
+        for (String text : new String[]{"0201\t170.5", "山田 太郎", "ﾔﾏﾀﾞ ﾀﾛｳ", "ABC山田ｱｲｳ123"}) {
+            byte[] data = SjisCodec.encode(text);
+            assertEquals(text, SjisCodec.decode(data, 0, data.length));
+        }
+    }
+
+    @Test
+    public void unmappableCharacterBecomesQuestionMark() {
+        byte[] data = SjisCodec.encode("A\u20ACB");
+        assertArrayEquals(new byte[]{'A', '?', 'B'}, data);
+        assertEquals("A?B", SjisCodec.decode(data, 0, data.length));
+    }
+
+    @Test
+    public void malformedBytesBecomeReplacementCharacter() {
+        byte[][] inputs = {
+                // 2バイト目のない先行バイト
+                {'A', (byte) 0x81},
+                // 2バイト目として不正
+                {(byte) 0x81, 0x20, 'B'},
+                // Shift_JIS で未定義のバイト
+                {'1', (byte) 0xa0, (byte) 0xfd, '2'},
+                {(byte) 0xff},
+        };
+        for (byte[] data : inputs) {
+            String expected = new String(data, AppCharset.SHIFT_JIS);
+            assertEquals(Arrays.toString(data), expected, SjisCodec.decode(data, 0, data.length));
+        }
+        assertEquals("A\uFFFD", SjisCodec.decode(new byte[]{'A', (byte) 0x81}, 0, 2));
+    }
+
+    @Test
+    public void decodeHonoursOffsetAndLength() {
+        byte[] data = "xx山田yy".getBytes(AppCharset.SHIFT_JIS);
+        assertEquals("山田", SjisCodec.decode(data, 2, 4));
+        assertEquals("xx", SjisCodec.decode(data, 0, 2));
+        assertEquals("", SjisCodec.decode(data, 3, 0));
+    }
+
+    @Test
+    public void handlesTextLongerThanWorkBuffer() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1500; i++) {
+            sb.append(i % 3 == 0 ? "山" : i % 3 == 1 ? "ｱ" : "1");
+        }
+        String text = sb.toString();
+        byte[] expected = text.getBytes(AppCharset.SHIFT_JIS);
+        assertArrayEquals(expected, SjisCodec.encode(text));
+        assertEquals(text, SjisCodec.decode(expected, 0, expected.length));
+        // 作業バッファを拡張した後も短い文字列を正しく変換する
+        assertEquals("山田", SjisCodec.decode(SjisCodec.encode("山田"), 0, 4));
+    }
+}
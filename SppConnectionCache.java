@@ -0,0 +1,244 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import jp.co.jimnet.kenshin.config.setdata.ConfigData;
+
+/**
+ * 計測器アドレスごとのSPP接続キャッシュ
+ *
+ * 受診者ごとのRFCOMM再接続(1～3秒)を避けるため、正常終了した接続を一定時間保持し、
+ * 同じ計測器への次回の通信で再利用する。
+ * 保持中の接続は再利用前に LivenessProbe で生存確認を行う(確認の通信はキャッシュのロック外で行う)。
+ * 片側だけ切れた RFCOMM 接続は送信が成功するため事前の確認では検出できず、
+ * 再利用した接続での通信失敗時は呼び出し元(MeasureDeviceConnector)が接続を破棄して1回だけ再接続する。
+ */
+public class SppConnectionCache {
+
+    private static final String TAG = "SppConnectionCache";
+
+    // 既定の未使用接続の保持時間(ミリ秒)
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000L;
+
+    /**
+     * 保持中の接続が再利用可能かを確認する
+     */
+    public interface LivenessProbe {
+        boolean isAlive(BluetoothSppConnection connection);
+    }
+
+    /**
+     * 既定の生存確認(通信を行わず、保持時間内の接続は再利用可能とする)<br>
+     * 切断は再利用後の最初の通信失敗で検出する
+     */
+    public static final LivenessProbe ASSUME_ALIVE = new LivenessProbe() {
+        @Override
+        public boolean isAlive(BluetoothSppConnection connection) {
+            return true;
+        }
+    };
+
+    private static final class Entry {
+        final BluetoothSppConnection connection;
+        boolean connected;
+        boolean inUse;
+        long lastUsedMillis;
+
+        Entry(BluetoothSppConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    private final ConfigData configData;
+    private final long idleTimeoutMillis;
+    private final LivenessProbe probe;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final ScheduledExecutorService evictor;
+
+    public SppConnectionCache(ConfigData configData) {
+        this(configData, DEFAULT_IDLE_TIMEOUT_MILLIS, ASSUME_ALIVE);
+    }
+
+    /**
+     * @param configData        設定データ
+     * @param idleTimeoutMillis 未使用接続を切断するまでの時間(ミリ秒)
+     * @param probe             再利用前の生存確認
+     */
+    public SppConnectionCache(ConfigData configData, long idleTimeoutMillis, LivenessProbe probe) {
+        this.configData = configData;
+        this.idleTimeoutMillis = Math.max(1L, idleTimeoutMillis);
+        this.probe = probe != null ? probe : ASSUME_ALIVE;
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, TAG);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(1000L, this.idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 計測器との接続を取得する<br>
+     * 保持中で生存確認できた接続があればそれを、なければ新しい接続を返す
+     *
+     * @param address 計測器アドレス
+     * @return 接続(使用後は release() で返却する)
+     */
+    public BluetoothSppConnection acquire(String address) {
+        Entry entry;
+        Entry stale = null;
+        synchronized (this) {
+            entry = entries.get(address);
+            if (entry != null && entry.inUse) {
+                // 使用中の計測器への同時アクセスはキャッシュしない
+                return new BluetoothSppConnection(configData);
+            }
+            if (entry != null && entry.connected && !isExpired(entry, System.currentTimeMillis())) {
+                // 生存確認中は他の通信に貸し出さない
+                entry.inUse = true;
+            } else {
+                stale = entry;
+                entry = register(address);
+            }
+        }
+        if (stale != null) {
+            stale.connection.close();
+            return entry.connection;
+        }
+
+        // 生存確認は通信を伴うためロック外で行う
+        boolean alive;
+        try {
+            alive = probe.isAlive(entry.connection);
+        } catch (Exception e) {
+            e.printStackTrace();
+            alive = false;
+        }
+        if (alive) {
+            DeviceLog.d(TAG, "acquire: reuse ", address);
+            return entry.connection;
+        }
+        DeviceLog.d(TAG, "acquire: stale connection ", address);
+        entry.connection.close();
+        synchronized (this) {
+            if (entries.get(address) != entry) {
+                // 確認中に clear() された
+                return new BluetoothSppConnection(configData);
+            }
+            return register(address).connection;
+        }
+    }
+
+    /**
+     * 新しい接続を使用中として登録する(ロック中に呼び出す)
+     */
+    private Entry register(String address) {
+        Entry entry = new Entry(new BluetoothSppConnection(configData));
+        entry.inUse = true;
+        entries.put(address, entry);
+        return entry;
+    }
+
+    /**
+     * 保持中の接続済みの接続かどうか(接続処理を省略できるか)
+     */
+    public synchronized boolean isConnected(BluetoothSppConnection connection) {
+        Entry entry = find(connection);
+        return entry != null && entry.connected;
+    }
+
+    /**
+     * 接続に成功したことを記録する
+     */
+    public synchronized void markConnected(BluetoothSppConnection connection) {
+        Entry entry = find(connection);
+        if (entry != null) {
+            entry.connected = true;
+        }
+    }
+
+    /**
+     * 接続を返却する
+     *
+     * @param connection acquire() で取得した接続
+     * @param keep       true: 接続を保持する false: 切断する(通信エラー時など)
+     */
+    public synchronized void release(BluetoothSppConnection connection, boolean keep) {
+        Entry entry = find(connection);
+        if (entry == null) {
+            // キャッシュ対象外の接続
+            connection.close();
+            return;
+        }
+        if (keep && entry.connected) {
+            entry.inUse = false;
+            entry.lastUsedMillis = System.currentTimeMillis();
+            return;
+        }
+        removeEntry(connection);
+        connection.close();
+    }
+
+    /**
+     * 保持時間を過ぎた未使用接続を切断する
+     */
+    public synchronized void evictIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (!entry.inUse && isExpired(entry, now)) {
+                it.remove();
+                entry.connection.close();
+            }
+        }
+    }
+
+    /**
+     * 保持中の接続をすべて切断し、以後の自動切断を停止する
+     */
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.connection.close();
+        }
+        entries.clear();
+        evictor.shutdownNow();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.lastUsedMillis != 0 && now - entry.lastUsedMillis >= idleTimeoutMillis;
+    }
+
+    private Entry find(BluetoothSppConnection connection) {
+        for (Entry entry : entries.values()) {
+            if (entry.connection == connection) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void removeEntry(BluetoothSppConnection connection) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().connection == connection) {
+                it.remove();
+                return;
+            }
+        }
+    }
+}
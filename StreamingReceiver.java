@@ -0,0 +1,57 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+import jp.co.jimnet.kenshin.io.ReadResultSize;
+
+/**
+ * 終端文字までの受信を1行ずつ IncrementalParser へ順に渡す受信処理
+ *
+ * 受信には従来どおり receiveDeviceValue(終端文字付き)を使い、受信データを FrameReader で CR LF ごとのフレームに
+ * 切り出して、受信バッファのまま渡す。
+ * receive() による任意長の読み出しは AOS-100NW で値が正しく取得できないため使わない。
+ */
+final class StreamingReceiver {
+
+    private static final byte[] LF = {0x0a};
+
+    private StreamingReceiver() {
+    }
+
+    /**
+     * 測定結果が確定するまで1行ずつ受信する
+     *
+     * 1行の受信が 0 バイト(タイムアウト・キャンセル)となった時点で終了する(従来のキャンセルと同じ)。
+     *
+     * @param connection 接続済みの接続
+     * @param line       1行分の受信バッファ
+     * @param terminator 行の終端文字(CR LF)
+     * @param parser     解析処理
+     * @return 最後の受信の戻り値(確定前に未受信・キャンセルとなった場合は parser.isComplete() が false)
+     */
+    static int receiveLines(BluetoothSppConnection connection, byte[] line, String terminator,
+                            IncrementalParser parser) {
+        ReadResultSize resultSize = new ReadResultSize();
+        FrameReader reader = new FrameReader(line);
+        int btRet = StatusConstants.BT_SUCCESS;
+        while (!parser.isComplete()) {
+            btRet = connection.receiveDeviceValue(line, resultSize, terminator);
+            if (resultSize.get() <= 0) {
+                // 未受信・キャンセル
+                break;
+            }
+            // CR LF までの行を受信バッファのまま順に渡す
+            reader.reset(resultSize.get());
+            ByteBuffer frame;
+            while (!parser.isComplete() && (frame = reader.next(FrameDetector.CRLF_FRAME)) != null) {
+                parser.feed(frame);
+            }
+            if (!parser.isComplete() && reader.remaining() > 0) {
+                // 受信データが終端文字で終わらない場合は行の区切りを補う
+                parser.feed(reader.rest());
+                parser.feed(LF, 0, LF.length);
+            }
+        }
+        return btRet;
+    }
+}
@@ -0,0 +1,118 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import java.nio.ByteBuffer;
+
+/**
+ * タブ区切りのレコード(SP-350COPD の測定値レコードなど)の項目位置の索引
+ *
+ * index() で受信バッファを1回走査してタブで終わる項目の開始・終了位置を記録し、
+ * 以後は「項目名の n 個後の項目」を位置の配列から取得する。
+ * レコード全体の文字列化・項目ごとの再走査は行わず、値を返すときのみ文字列を生成する。
+ * 配列はレコードをまたいで再利用する。
+ */
+final class TabRecordIndex {
+
+    private static final byte TAB = 0x09;
+
+    // 初期の項目数(不足時は拡張する)
+    private static final int INITIAL_FIELDS = 64;
+
+    private byte[] data;
+    private int recordStart;
+    private int[] starts = new int[INITIAL_FIELDS];
+    private int[] ends = new int[INITIAL_FIELDS];
+    private int count;
+
+    /**
+     * レコードの項目位置を記録する
+     *
+     * @param data   受信バッファ
+     * @param length レコードの長さ
+     * @return this
+     */
+    TabRecordIndex index(byte[] data, int length) {
+        return index(data, 0, length);
+    }
+
+    /**
+     * FrameReader で切り出したレコードの項目位置を記録する(コピーせずに受信バッファを参照する)
+     *
+     * @param record レコード(position～limit)
+     * @return this
+     */
+    TabRecordIndex index(ByteBuffer record) {
+        return index(record.array(), FrameReader.arrayOffset(record), record.remaining());
+    }
+
+    private TabRecordIndex index(byte[] data, int offset, int length) {
+        this.data = data;
+        recordStart = offset;
+        count = 0;
+        int start = offset;
+        for (int i = offset; i < offset + length; i++) {
+            if (data[i] != TAB) {
+                continue;
+            }
+            if (count == starts.length) {
+                starts = grow(starts);
+                ends = grow(ends);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            count++;
+            start = i + 1;
+        }
+        // タブで終わらない末尾(ETX など)は項目としない
+        return this;
+    }
+
+    /**
+     * 項目名の後の seq 番目の項目
+     *
+     * @param key      項目名
+     * @param seq      項目名から数えた順番(1: 項目名の次の項目)
+     * @param notFound 項目名・項目がない場合の戻り値
+     * @return 項目の値
+     */
+    String value(String key, int seq, String notFound) {
+        int keyField = find(key);
+        if (keyField < 0 || keyField + seq >= count) {
+            return notFound;
+        }
+        int field = keyField + seq;
+        return SjisCodec.decode(data, starts[field], ends[field] - starts[field]);
+    }
+
+    /**
+     * 項目名で終わる最初の項目の番号(見つからない場合は -1)<br>
+     * 従来の indexOf(項目名 + TAB) と同じく、項目の末尾が項目名と一致すれば該当とする
+     */
+    private int find(String key) {
+        for (int field = 0; field < count; field++) {
+            if (endsWith(field, key)) {
+                // レコード先頭と一致する場合は見つからないものとする(従来どおり)
+                return ends[field] - key.length() == recordStart ? -1 : field;
+            }
+        }
+        return -1;
+    }
+
+    private boolean endsWith(int field, String key) {
+        int offset = ends[field] - key.length();
+        if (offset < starts[field]) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (data[offset + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -0,0 +1,122 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * TabRecordIndex の項目名による値の取得
+ */
+public class TabRecordIndexTest {
+
+    private static final String NOT_FOUND = "false";
+
+    // STX 0201 VC 予測値 肺活量 %肺活量 ... ETX(タブで終わらない末尾)
+    private static final String RECORD = "\u00020201\tVC\t3.50\t4.12\t3.98\t96\tFEV1\t2.90\t3.10\tFEV1%G\t78.5\t\u0003";
+
+    @Test
+    public void returnsNthFieldAfterKey() {
+        TabRecordIndex index = index(RECORD);
+        assertEquals("3.50", index.value("VC", 1, NOT_FOUND));
+        assertEquals("4.12", index.value("VC", 2, NOT_FOUND));
+        assertEquals("96", index.value("VC", 4, NOT_FOUND));
+        assertEquals("2.90", index.value("FEV1", 1, NOT_FOUND));
+        assertEquals("78.5", index.value("FEV1%G", 1, NOT_FOUND));
+    }
+
+    @Test
+    public void keyMatchesEndOfField() {
+        // 従来の indexOf(項目名 + TAB) と同じく、項目の末尾が一致すれば該当する
+        TabRecordIndex index = index("X\tABCVC\t1.0\tVC\t2.0\t");
+        assertEquals("1.0", index.value("VC", 1, NOT_FOUND));
+        // "FEV1%G" は "FEV1" に一致しない
+        assertEquals("3.10", index(RECORD).value("FEV1", 2, NOT_FOUND));
+    }
+
+    @Test
+    public void keyAtRecordStartIsNotFound() {
+        TabRecordIndex index = index("VC\t3.50\t4.12\t");
+        assertEquals(NOT_FOUND, index.value("VC", 1, NOT_FOUND));
+    }
+
+    @Test
+    public void missingKeyIsNotFound() {
+        TabRecordIndex index = index(RECORD);
+        assertEquals(NOT_FOUND, index.value("FVC", 1, NOT_FOUND));
+        assertEquals(NOT_FOUND, index.value("VCX", 1, NOT_FOUND));
+    }
+
+    @Test
+    public void fieldPastRecordEndIsNotFound() {
+        TabRecordIndex index = index(RECORD);
+        // "78.5" の後はタブで終わらない ETX のみ
+        assertEquals(NOT_FOUND, index.value("FEV1%G", 2, NOT_FOUND));
+        assertEquals(NOT_FOUND, index(RECORD.substring(0, RECORD.length() - 1)).value("FEV1%G", 2, NOT_FOUND));
+    }
+
+    @Test
+    public void emptyRecordIsNotFound() {
+        TabRecordIndex index = new TabRecordIndex().index(new byte[0], 0);
+        assertEquals(NOT_FOUND, index.value("VC", 1, NOT_FOUND));
+    }
+
+    @Test
+    public void indexIsReusedAcrossRecords() {
+        TabRecordIndex index = new TabRecordIndex();
+        byte[] buffer = new byte[256];
+        StringBuilder many = new StringBuilder("\u0002");
+        for (int i = 0; i < 100; i++) {
+            many.append("K").append(i).append('\t').append(i).append('\t');
+        }
+        assertEquals("99", index(index, buffer, many.toString()).value("K99", 1, NOT_FOUND));
+
+        // 前のレコードの項目は残らない
+        index(index, buffer, "\u0002VC\t1.23\t");
+        assertEquals("1.23", index.value("VC", 1, NOT_FOUND));
+        assertEquals(NOT_FOUND, index.value("K99", 1, NOT_FOUND));
+    }
+
+    @Test
+    public void honoursLength() {
+        byte[] data = bytes("\u0002VC\t1.23\t4.56\t");
+        // 2番目の値の途中までを1レコードとする
+        TabRecordIndex index = new TabRecordIndex().index(data, data.length - 2);
+        assertEquals("1.23", index.value("VC", 1, NOT_FOUND));
+        assertEquals(NOT_FOUND, index.value("VC", 2, NOT_FOUND));
+    }
+
+    @Test
+    public void indexesFrameSlice() {
+        // STX の前のデータ・ETX の後のデータを除いたフレームのみを1レコードとする
+        byte[] data = bytes("VC\t9.99\t\u0002VC\t1.23\t4.56\t\u0003FEV1\t2.90\t");
+        ByteBuffer frame = new FrameReader(data).reset(data.length).next(FrameDetector.STX_ETX_FRAME);
+        TabRecordIndex index = new TabRecordIndex().index(frame);
+        assertEquals("1.23", index.value("VC", 1, NOT_FOUND));
+        assertEquals("4.56", index.value("VC", 2, NOT_FOUND));
+        assertEquals(NOT_FOUND, index.value("FEV1", 1, NOT_FOUND));
+        // 受信バッファの途中から始まるフレームでも、フレームの先頭の項目は該当しない
+        frame.position(1);
+        assertEquals(NOT_FOUND, new TabRecordIndex().index(frame.slice()).value("VC", 1, NOT_FOUND));
+    }
+
+    private static TabRecordIndex index(String record) {
+        byte[] data = bytes(record);
+        return new TabRecordIndex().index(data, data.length);
+    }
+
+    private static TabRecordIndex index(TabRecordIndex index, byte[] buffer, String record) {
+        byte[] data = bytes(record);
+        if (data.length > buffer.length) {
+            buffer = new byte[data.length];
+        }
+        System.arraycopy(data, 0, buffer, 0, data.length);
+        return index.index(buffer, data.length);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,89 @@
+package jp.co.jimnet.kenshin.io.bluetooth;
+
+/**
+ * 体重計の計量値の安定判定
+ *
+ * 受信した計量値を順に add() し、直近 window 件の差が tolerance 以内に収まった時点で安定とする。
+ * 計測器が安定フラグを返す前に計測を終了できる。
+ * 計測器が安定を返さない場合に備え、start() からの待ち時間に上限を設ける。
+ * 判定は固定長の配列のみで行い、計量値ごとのオブジェクト生成はしない。
+ */
+final class WeightStabilizer {
+
+    // 既定の許容幅(kg)
+    static final double DEFAULT_TOLERANCE = 0.1;
+    // 既定の判定件数
+    static final int DEFAULT_WINDOW = 5;
+    // 既定の待ち時間の上限(ミリ秒)
+    static final long DEFAULT_TIMEOUT_MILLIS = 60 * 1000L;
+
+    private final double tolerance;
+    private final double[] samples;
+    private final long timeoutNanos;
+
+    private int count;
+    private int next;
+    private long deadlineNanos;
+
+    WeightStabilizer() {
+        this(DEFAULT_TOLERANCE, DEFAULT_WINDOW, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param tolerance     安定とみなす計量値の幅(kg)
+     * @param window        判定に使う直近の計量値の件数(2以上)
+     * @param timeoutMillis start() から安定を待つ上限(ミリ秒)
+     */
+    WeightStabilizer(double tolerance, int window, long timeoutMillis) {
+        this.tolerance = Math.max(0d, tolerance);
+        this.samples = new double[Math.max(2, window)];
+        this.timeoutNanos = Math.max(1L, timeoutMillis) * 1000000L;
+    }
+
+    /**
+     * 判定を開始する(これまでの計量値は破棄する)
+     */
+    void start() {
+        count = 0;
+        next = 0;
+        deadlineNanos = System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * 計量値を追加する
+     *
+     * @param weight 計量値(kg)
+     * @return true: 安定した(0kg 以下は安定とみなさない)
+     */
+    boolean add(double weight) {
+        samples[next] = weight;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+        return isStable();
+    }
+
+    /**
+     * 直近の計量値が安定しているか
+     */
+    boolean isStable() {
+        if (count < samples.length) {
+            return false;
+        }
+        double min = samples[0];
+        double max = samples[0];
+        for (int i = 1; i < samples.length; i++) {
+            min = Math.min(min, samples[i]);
+            max = Math.max(max, samples[i]);
+        }
+        return min > 0 && max - min <= tolerance;
+    }
+
+    /**
+     * 待ち時間の上限を過ぎたか
+     */
+    boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+}